@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.ClassFileHeader;
+import com.github.musikk.classreader.ClassFileVisitor;
+import com.github.musikk.classreader.ParseOption;
+import com.github.musikk.classreader.constantpool.MethodReference;
+import com.github.musikk.classreader.instructions.Opcode;
+import com.github.musikk.classreader.methods.InvocationVisitor;
+
+/**
+ * Parses every class of the {@link Corpus} from memory. One operation is one
+ * pass over the whole corpus.
+ *
+ * @author Werner Hahn
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ClassFileBenchmark {
+
+	private List<byte[]> classFiles;
+
+	@Setup
+	public void setUp() {
+		classFiles = Corpus.getClassFiles();
+	}
+
+	@Benchmark
+	public void fromStream(Blackhole blackhole) {
+		for (byte[] classFile : classFiles) {
+			blackhole.consume(new ClassFile(new ByteArrayInputStream(classFile)));
+		}
+	}
+
+	@Benchmark
+	public void fromArray(Blackhole blackhole) {
+		for (byte[] classFile : classFiles) {
+			blackhole.consume(new ClassFile(classFile, 0, classFile.length));
+		}
+	}
+
+	@Benchmark
+	public void lazyConstantPool(Blackhole blackhole) {
+		for (byte[] classFile : classFiles) {
+			blackhole.consume(new ClassFile(ByteBuffer.wrap(classFile), ParseOption.LAZY_CONSTANT_POOL));
+		}
+	}
+
+	@Benchmark
+	public void lazyConstantPoolAndAttributes(Blackhole blackhole) {
+		for (byte[] classFile : classFiles) {
+			blackhole.consume(new ClassFile(ByteBuffer.wrap(classFile), ParseOption.LAZY_CONSTANT_POOL,
+					ParseOption.LAZY_ATTRIBUTES));
+		}
+	}
+
+	@Benchmark
+	public void scanHeader(Blackhole blackhole) {
+		for (byte[] classFile : classFiles) {
+			blackhole.consume(ClassFile.scanHeader(ByteBuffer.wrap(classFile)).getClassName());
+		}
+	}
+
+	@Benchmark
+	public void visitMethods(final Blackhole blackhole) {
+		ClassFileVisitor visitor = new ClassFileVisitor() {
+
+			@Override
+			public boolean visitHeader(ClassFileHeader header) {
+				return true;
+			}
+
+			@Override
+			public boolean visitMethod(int accessFlags, int nameIndex, int descriptorIndex) {
+				blackhole.consume(nameIndex);
+				return false;
+			}
+
+		};
+		for (byte[] classFile : classFiles) {
+			ClassFile.accept(ByteBuffer.wrap(classFile), visitor);
+		}
+	}
+
+	@Benchmark
+	public void invocations(final Blackhole blackhole) {
+		InvocationVisitor visitor = new InvocationVisitor() {
+
+			@Override
+			public void visitInvocation(int offset, Opcode opcode, MethodReference target) {
+				blackhole.consume(target);
+			}
+
+		};
+		for (byte[] classFile : classFiles) {
+			new ClassFile(ByteBuffer.wrap(classFile), ParseOption.LAZY_CONSTANT_POOL, ParseOption.LAZY_ATTRIBUTES)
+					.acceptInvocations(visitor);
+		}
+	}
+
+}
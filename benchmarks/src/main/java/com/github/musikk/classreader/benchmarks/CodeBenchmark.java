@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.attributes.AttributeInfo;
+import com.github.musikk.classreader.attributes.Code;
+import com.github.musikk.classreader.attributes.CodeAttribute;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+import com.github.musikk.classreader.instructions.OpcodeFilter;
+import com.github.musikk.classreader.methods.MethodInfo;
+
+/**
+ * Decodes the byte code of every method of the {@link Corpus}. Since
+ * {@link Code} caches its decoded instructions, the classes are parsed again before
+ * every invocation; only the decoding is measured. One operation is one pass
+ * over all methods.
+ *
+ * @author Werner Hahn
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CodeBenchmark {
+
+	private List<byte[]> classFiles;
+
+	private List<Code> codes;
+
+	@Setup
+	public void setUp() {
+		classFiles = Corpus.getClassFiles();
+	}
+
+	@Setup(Level.Invocation)
+	public void parse() {
+		codes = new ArrayList<>();
+		for (byte[] bytes : classFiles) {
+			ClassFile classFile = new ClassFile(bytes, 0, bytes.length);
+			for (MethodInfo method : classFile.getMethods()) {
+				for (AttributeInfo attributeInfo : method.getAttributes()) {
+					if (attributeInfo instanceof CodeAttribute) {
+						codes.add(((CodeAttribute) attributeInfo).getCode());
+					}
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void getInstructions(Blackhole blackhole) {
+		for (Code code : codes) {
+			blackhole.consume(code.getInstructions());
+		}
+	}
+
+	@Benchmark
+	public void getPackedInstructions(Blackhole blackhole) {
+		for (Code code : codes) {
+			blackhole.consume(code.getPackedInstructions());
+		}
+	}
+
+	@Benchmark
+	public void getInvokeInstructions(Blackhole blackhole) {
+		for (Code code : codes) {
+			blackhole.consume(code.getInstructions(OpcodeFilter.INVOKES));
+		}
+	}
+
+	@Benchmark
+	public void instructionCursor(Blackhole blackhole) {
+		for (Code code : codes) {
+			InstructionCursor cursor = code.getInstructionCursor();
+			while (cursor.next()) {
+				blackhole.consume(cursor.opcode());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.constantpool.ConstantMethodrefInfo;
+import com.github.musikk.classreader.constantpool.ConstantPool;
+import com.github.musikk.classreader.constantpool.ConstantPoolInfo;
+import com.github.musikk.classreader.constantpool.NameAndTypeInfo;
+
+/**
+ * Looks up entries in the constant pools of the {@link Corpus}. The classes
+ * are parsed once up front. One operation is one pass over all constant
+ * pools.
+ *
+ * @author Werner Hahn
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ConstantPoolBenchmark {
+
+	private List<ClassFile> classFiles;
+
+	@Setup
+	public void setUp() {
+		classFiles = new ArrayList<>();
+		for (byte[] classFile : Corpus.getClassFiles()) {
+			classFiles.add(new ClassFile(classFile, 0, classFile.length));
+		}
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (ClassFile classFile : classFiles) {
+			for (ConstantPoolInfo cpi : classFile.getConstantPool()) {
+				blackhole.consume(cpi);
+			}
+		}
+	}
+
+	@Benchmark
+	public void thisClassName(Blackhole blackhole) {
+		for (ClassFile classFile : classFiles) {
+			ConstantPool cp = classFile.getConstantPool();
+			blackhole.consume(cp.getUtf8Info(cp.getClassInfo(classFile.getThisClassIndex()).getNameIndex()).getValue());
+		}
+	}
+
+	@Benchmark
+	public void resolveMethodrefs(Blackhole blackhole) {
+		for (ClassFile classFile : classFiles) {
+			ConstantPool cp = classFile.getConstantPool();
+			for (ConstantMethodrefInfo methodref : cp.getMethodrefInfos()) {
+				NameAndTypeInfo nameAndType = cp.getNameAndTypeInfo(methodref.getNameAndTypeIndex());
+				blackhole.consume(cp.getUtf8Info(cp.getClassInfo(methodref.getClassIndex()).getNameIndex()).getValue());
+				blackhole.consume(cp.getUtf8Info(nameAndType.getNameIndex()).getValue());
+				blackhole.consume(cp.getUtf8Info(nameAndType.getDescriptorIndex()).getValue());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.base.Splitter;
+import com.google.common.io.ByteStreams;
+
+/**
+ * The class files the benchmarks run on. By default this is the Guava 15.0
+ * JAR in the local Maven repository, whose location is written into
+ * {@code corpus.properties} by the build. Other JARs (e.g. the
+ * {@code rt.jar} of a JDK) can be given as a comma separated list in the
+ * system property {@code classreader.corpus}. Use the same corpus to compare
+ * numbers between builds.
+ *
+ * @author Werner Hahn
+ *
+ */
+final class Corpus {
+
+	private static final String CORPUS_PROPERTY = "classreader.corpus";
+
+	private static final String CORPUS_RESOURCE = "/corpus.properties";
+
+	private Corpus() {
+	}
+
+	/**
+	 * Returns the JARs of the corpus.
+	 *
+	 * @return the JARs
+	 */
+	static List<File> getJars() {
+		String corpus = System.getProperty(CORPUS_PROPERTY);
+		if (corpus == null) {
+			corpus = getDefaultCorpus();
+		}
+		List<File> jars = new ArrayList<>();
+		for (String jar : Splitter.on(',').omitEmptyStrings().trimResults().split(corpus)) {
+			File file = new File(jar);
+			if (!file.isFile()) {
+				throw new RuntimeException("the corpus JAR " + file + " does not exist, set -D" + CORPUS_PROPERTY);
+			}
+			jars.add(file);
+		}
+		return Collections.unmodifiableList(jars);
+	}
+
+	private static String getDefaultCorpus() {
+		Properties properties = new Properties();
+		try (InputStream is = Corpus.class.getResourceAsStream(CORPUS_RESOURCE)) {
+			if (is == null) {
+				throw new RuntimeException("no default corpus, set -D" + CORPUS_PROPERTY);
+			}
+			properties.load(is);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return properties.getProperty(CORPUS_PROPERTY);
+	}
+
+	/**
+	 * Reads all class files of the corpus into memory.
+	 *
+	 * @return the contents of the class files
+	 */
+	static List<byte[]> getClassFiles() {
+		List<byte[]> classFiles = new ArrayList<>();
+		for (File jar : getJars()) {
+			try (ZipFile zipFile = new ZipFile(jar)) {
+				Enumeration<? extends ZipEntry> entries = zipFile.entries();
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+					if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+						continue;
+					}
+					try (InputStream is = zipFile.getInputStream(entry)) {
+						classFiles.add(ByteStreams.toByteArray(is));
+					}
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return Collections.unmodifiableList(classFiles);
+	}
+
+}
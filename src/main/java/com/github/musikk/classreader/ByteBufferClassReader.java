@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ClassReader} that reads directly from a {@link ByteBuffer}. Every
+ * primitive is read by absolute position in big-endian byte order, so neither
+ * the content of the buffer is copied nor are the position and limit of the
+ * given buffer modified. Heap buffers as well as direct (e.g. memory-mapped)
+ * buffers are supported.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ByteBufferClassReader implements ClassReader {
+
+	private ByteBuffer buffer;
+
+	/**
+	 * The absolute position in {@link #buffer} of the next byte to read.
+	 */
+	private int position;
+
+	/**
+	 * Creates a {@code ByteBufferClassReader} that reads the bytes between the
+	 * position and the limit of the given buffer.
+	 *
+	 * @param buffer
+	 *            the buffer to read from
+	 */
+	public ByteBufferClassReader(ByteBuffer buffer) {
+		// a duplicate always has big-endian byte order
+		this.buffer = buffer.duplicate();
+		this.position = buffer.position();
+	}
+
+	/**
+	 * Creates a {@code ByteBufferClassReader} that reads {@code length} bytes
+	 * of the given array starting at {@code offset}. The array is not copied.
+	 *
+	 * @param bytes
+	 *            the array to read from
+	 * @param offset
+	 *            the index of the first byte to read
+	 * @param length
+	 *            the number of readable bytes
+	 */
+	public ByteBufferClassReader(byte[] bytes, int offset, int length) {
+		this(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Returns the absolute position in the underlying buffer of the next byte
+	 * to read.
+	 *
+	 * @return the position
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Sets the absolute position in the underlying buffer of the next byte to
+	 * read.
+	 *
+	 * @param position
+	 *            the new position
+	 */
+	public void setPosition(int position) {
+		this.position = position;
+	}
+
+	/**
+	 * Skips the given number of bytes.
+	 *
+	 * @param count
+	 *            the number of bytes to skip
+	 */
+	public void skipBytes(int count) {
+		position += count;
+	}
+
+	/**
+	 * Returns a view of the underlying buffer. Positions returned by
+	 * {@link #getPosition()} are valid absolute indexes into this view. The
+	 * content must not be modified.
+	 *
+	 * @return a view of the underlying buffer
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer.duplicate();
+	}
+
+	@Override
+	public long readLong() {
+		long value = buffer.getLong(position);
+		position += 8;
+		return value;
+	}
+
+	@Override
+	public byte readByte() {
+		return buffer.get(position++);
+	}
+
+	@Override
+	public short readUnsignedByte() {
+		return (short) (buffer.get(position++) & 0xFF);
+	}
+
+	@Override
+	public int readInt() {
+		int value = buffer.getInt(position);
+		position += 4;
+		return value;
+	}
+
+	@Override
+	public long readUnsignedInt() {
+		return readInt() & 0xFFFFFFFFL;
+	}
+
+	@Override
+	public short readShort() {
+		short value = buffer.getShort(position);
+		position += 2;
+		return value;
+	}
+
+	@Override
+	public int readUnsignedShort() {
+		return readShort() & 0xFFFF;
+	}
+
+	@Override
+	public float readFloat() {
+		float value = buffer.getFloat(position);
+		position += 4;
+		return value;
+	}
+
+	@Override
+	public double readDouble() {
+		double value = buffer.getDouble(position);
+		position += 8;
+		return value;
+	}
+
+	@Override
+	public void readBytesFully(byte[] target) {
+		readBytesFully(target, 0, target.length);
+	}
+
+	@Override
+	public void readBytesFully(byte[] target, int offset, int length) {
+		if (length > buffer.limit() - position) {
+			throw new IndexOutOfBoundsException("cannot read " + length + " bytes, only "
+					+ (buffer.limit() - position) + " remaining");
+		}
+		if (buffer.hasArray()) {
+			System.arraycopy(buffer.array(), buffer.arrayOffset() + position, target, offset, length);
+		} else {
+			ByteBuffer source = buffer.duplicate();
+			// Buffer.position(int) is used to stay binary compatible with Java 7 and 8
+			((Buffer) source).position(position);
+			source.get(target, offset, length);
+		}
+		position += length;
+	}
+
+	@Override
+	public String readUtf8String() {
+		int utfLength = readUnsignedShort();
+		if (utfLength > buffer.limit() - position) {
+			throw new IndexOutOfBoundsException("cannot read " + utfLength + " bytes, only "
+					+ (buffer.limit() - position) + " remaining");
+		}
+		char[] chars = new char[utfLength];
+		int charCount = 0;
+		int current = position;
+		int end = position + utfLength;
+
+		while (current < end) {
+			int c = buffer.get(current) & 0xFF;
+			if (c < 0x80) {
+				// 0xxxxxxx
+				chars[charCount++] = (char) c;
+				current++;
+			} else if ((c & 0xE0) == 0xC0) {
+				// 110xxxxx 10xxxxxx
+				int c2 = continuationByte(current + 1, end);
+				chars[charCount++] = (char) (((c & 0x1F) << 6) | c2);
+				current += 2;
+			} else if ((c & 0xF0) == 0xE0) {
+				// 1110xxxx 10xxxxxx 10xxxxxx
+				int c2 = continuationByte(current + 1, end);
+				int c3 = continuationByte(current + 2, end);
+				chars[charCount++] = (char) (((c & 0x0F) << 12) | (c2 << 6) | c3);
+				current += 3;
+			} else {
+				throw new RuntimeException("malformed modified UTF-8 input around byte " + current);
+			}
+		}
+
+		position = end;
+		return new String(chars, 0, charCount);
+	}
+
+	/**
+	 * Returns the payload of the continuation byte ({@code 10xxxxxx}) at the
+	 * given absolute position.
+	 */
+	private int continuationByte(int index, int end) {
+		if (index >= end) {
+			throw new RuntimeException("malformed modified UTF-8 input: partial character at end");
+		}
+		int b = buffer.get(index);
+		if ((b & 0xC0) != 0x80) {
+			throw new RuntimeException("malformed modified UTF-8 input around byte " + index);
+		}
+		return b & 0x3F;
+	}
+
+	@Override
+	public void close() {
+		/*
+		 * The buffer is owned by the caller, so there is nothing to close. The
+		 * reference is dropped so a heap buffer may be garbage collected.
+		 */
+		buffer = null;
+	}
+
+}
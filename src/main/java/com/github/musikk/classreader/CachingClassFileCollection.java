@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.util.Collection;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A {@link ClassFileCollection} that caches the {@link ClassFile}s of another
+ * collection. The cache is bounded by the total size of the cached class
+ * files in bytes and evicts the least recently used classes first. Lookups
+ * of classes that do not exist are cached as well. Like in every Guava cache
+ * the bound is split among the segments of the cache, so classes may be
+ * evicted before the total size reaches it.
+ * <p>
+ * The cache may be used by several threads concurrently; a class requested
+ * by several threads at once is only loaded once.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class CachingClassFileCollection extends ClassFileCollection {
+
+	private final ClassFileCollection classFiles;
+	private final LoadingCache<String, Optional<ClassFile>> cache;
+
+	/**
+	 * Creates a {@code CachingClassFileCollection}.
+	 *
+	 * @param classFiles
+	 *            the collection whose classes are cached
+	 * @param maximumBytes
+	 *            the maximum total size of the cached class files in bytes
+	 */
+	public CachingClassFileCollection(final ClassFileCollection classFiles, long maximumBytes) {
+		this.classFiles = classFiles;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maximumBytes)
+				.weigher(new Weigher<String, Optional<ClassFile>>() {
+					@Override
+					public int weigh(String className, Optional<ClassFile> classFile) {
+						// a missing class still takes an entry
+						return classFile.isPresent() ? Math.max(classFile.get().getLength(), 1) : 1;
+					}
+				})
+				.recordStats()
+				.build(new CacheLoader<String, Optional<ClassFile>>() {
+					@Override
+					public Optional<ClassFile> load(String className) {
+						return Optional.fromNullable(classFiles.getClassFile(className));
+					}
+				});
+	}
+
+	@Override
+	public ClassFile getClassFile(String className) {
+		try {
+			return cache.getUnchecked(className).orNull();
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * Returns the header of a cached class or reads it from the underlying
+	 * collection without caching the class.
+	 */
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+		Optional<ClassFile> classFile = cache.getIfPresent(className);
+		if (classFile != null) {
+			return classFile.isPresent() ? classFile.get().getHeader() : null;
+		}
+		return classFiles.getClassFileHeader(className);
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		return classFiles.getClassNames();
+	}
+
+	/**
+	 * Returns the statistics of the cache: hits, misses, evictions and the
+	 * time spent loading classes.
+	 *
+	 * @return a snapshot of the statistics
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * Removes all classes from the cache.
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Empties the cache and closes the underlying collection.
+	 */
+	@Override
+	public void close() {
+		cache.invalidateAll();
+		classFiles.close();
+	}
+
+}
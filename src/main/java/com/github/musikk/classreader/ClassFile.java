@@ -30,7 +30,10 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.SortedMap;
 
@@ -44,8 +47,10 @@ import com.github.musikk.classreader.constantpool.Utf8Info;
 import com.github.musikk.classreader.fields.FieldInfo;
 import com.github.musikk.classreader.fields.Fields;
 import com.github.musikk.classreader.instructions.Instruction;
+import com.github.musikk.classreader.methods.InvocationVisitor;
 import com.github.musikk.classreader.methods.MethodInfo;
 import com.github.musikk.classreader.methods.Methods;
+import com.google.common.io.ByteStreams;
 
 /**
  *
@@ -59,64 +64,128 @@ import com.github.musikk.classreader.methods.Methods;
  */
 public class ClassFile {
 
-	private final ClassReader classReader;
-
 	/**
-	 * Minor version number.
+	 * The header of this class file, i.e. version, constant pool, flags, this
+	 * and super class and interfaces.
 	 */
-	private int minor;
+	private ClassFileHeader header;
+
 	/**
-	 * Major version number.
+	 * The fields of this class.
 	 */
-	private int major;
+	private Fields fields;
 
 	/**
-	 * The {@link ConstantPool} of this class file.
+	 * The methods of this class.
 	 */
-	private ConstantPool constantPool;
-
-	private EnumSet<Modifier> modifiers;
+	private Methods methods;
 
 	/**
-	 * The index of the name of this class in the {@link ClassFile#constantPool
-	 * ConstantPool}.
+	 * The attributes of this class.
 	 */
-	private int thisClassIndex;
+	private Attributes attributes;
+
 	/**
-	 * The index of the name of the super class in the
-	 * {@link ClassFile#constantPool ConstantPool}.
+	 * The size of this class file in bytes.
 	 */
-	private int superClassIndex;
+	private int length;
 
 	/**
-	 * The interfaces this class implements.
+	 * Create a <code>ClassFile</code> from the given stream.
+	 *
+	 * @param is
+	 *            an <code>InputStream</code> referring to the class.
 	 */
-	private Interfaces interfaces;
+	public ClassFile(InputStream is) {
+		this(ByteBuffer.wrap(readStream(is)));
+	}
 
 	/**
-	 * The fields of this class.
+	 * Create a <code>ClassFile</code> from the bytes between the position and
+	 * the limit of the given buffer. The content of the buffer is not copied
+	 * and its position is not modified.
+	 *
+	 * @param buffer
+	 *            a heap or direct <code>ByteBuffer</code> containing the class.
+	 * @param options
+	 *            the {@link ParseOption}s to apply.
 	 */
-	private Fields fields;
+	public ClassFile(ByteBuffer buffer, ParseOption... options) {
+		ByteBufferClassReader classReader = new ByteBufferClassReader(buffer);
+		parseFile(new ClassReaderContext(classReader, Arrays.asList(options)));
+		this.length = classReader.getPosition() - buffer.position();
+	}
 
 	/**
-	 * The methods of this class.
+	 * Create a <code>ClassFile</code> from a region of the given array. The
+	 * array is not copied.
+	 *
+	 * @param bytes
+	 *            the array containing the class.
+	 * @param offset
+	 *            the index of the first byte of the class.
+	 * @param length
+	 *            the length of the class in bytes.
+	 * @param options
+	 *            the {@link ParseOption}s to apply.
 	 */
-	private Methods methods;
+	public ClassFile(byte[] bytes, int offset, int length, ParseOption... options) {
+		this(ByteBuffer.wrap(bytes, offset, length), options);
+	}
+
+	private static byte[] readStream(InputStream is) {
+		try {
+			return ByteStreams.toByteArray(is);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
 
 	/**
-	 * The attributes of this class.
+	 * Reads only the {@link ClassFileHeader} of the class contained in the
+	 * given buffer. Fields, methods and attributes are skipped entirely and
+	 * the constant pool is decoded lazily. The content of the buffer is not
+	 * copied and must not be modified as long as the header is in use.
+	 *
+	 * @param buffer
+	 *            a heap or direct <code>ByteBuffer</code> containing the class.
+	 * @return the header of the class
 	 */
-	private Attributes attributes;
+	public static ClassFileHeader scanHeader(ByteBuffer buffer) {
+		ClassReader classReader = new ByteBufferClassReader(buffer);
+		ClassReaderContext ctxt = new ClassReaderContext(classReader,
+				EnumSet.of(ParseOption.LAZY_CONSTANT_POOL));
+		ClassFileHeader header = ClassFileHeader.getClassFileHeader(ctxt);
+		classReader.close();
+		return header;
+	}
 
 	/**
-	 * Create a <code>ClassFile</code> from the given stream.
+	 * Reads only the {@link ClassFileHeader} of the class from the given
+	 * stream.
 	 *
 	 * @param is
 	 *            an <code>InputStream</code> referring to the class.
+	 * @return the header of the class
+	 * @see ClassFile#scanHeader(ByteBuffer)
 	 */
-	public ClassFile(InputStream is) {
-		classReader = new ClassReaderImpl(is);
-		parseFile(new ClassReaderContext(classReader));
+	public static ClassFileHeader scanHeader(InputStream is) {
+		return scanHeader(ByteBuffer.wrap(readStream(is)));
+	}
+
+	/**
+	 * Visits the class contained in the given buffer with the given
+	 * {@link ClassFileVisitor} in a single pass. Only the parts the visitor
+	 * asks for are parsed, everything else is skipped. The content of the
+	 * buffer is not copied.
+	 *
+	 * @param buffer
+	 *            a heap or direct <code>ByteBuffer</code> containing the class.
+	 * @param visitor
+	 *            the visitor
+	 */
+	public static void accept(ByteBuffer buffer, ClassFileVisitor visitor) {
+		new ClassFileWalker(new ByteBufferClassReader(buffer), visitor).walk();
 	}
 
 	/**
@@ -124,13 +193,7 @@ public class ClassFile {
 	 * @param classReaderContext
 	 */
 	private void parseFile(ClassReaderContext ctxt) {
-		checkMagic();
-		readVersion();
-		readConstantPool(ctxt);
-		readFlags();
-		readThisClassIndex();
-		readSuperClassIndex();
-		readInterfaces(ctxt);
+		readHeader(ctxt);
 		readFields(ctxt);
 		readMethods(ctxt);
 		readAttributes(ctxt);
@@ -149,85 +212,65 @@ public class ClassFile {
 		this.fields = Fields.getFields(ctxt);
 	}
 
-	private void readInterfaces(ClassReaderContext ctxt) {
-		this.interfaces = Interfaces.getInterfaces(ctxt);
+	private void readHeader(ClassReaderContext ctxt) {
+		this.header = ClassFileHeader.getClassFileHeader(ctxt);
 	}
 
-	private void readSuperClassIndex() {
-		this.superClassIndex = classReader.readUnsignedShort();
-	}
-
-	private void readThisClassIndex() {
-		this.thisClassIndex = classReader.readUnsignedShort();
+	public ClassFileHeader getHeader() {
+		return header;
 	}
 
 	/**
-	 * Reads and assigns the flags for this class.
+	 * Returns the size of the class file in bytes.
+	 *
+	 * @return the size in bytes
 	 */
-	private void readFlags() {
-		int accessFlags = classReader.readShort();
-		modifiers = Modifier.readModifiers(accessFlags, Modifier.Target.CLASS);
-	}
-
-	private void readConstantPool(ClassReaderContext ctxt) {
-		constantPool = ConstantPool.createConstantPool(ctxt);
-	}
-
-	private void readVersion() {
-		minor = classReader.readUnsignedShort();
-		major = classReader.readUnsignedShort();
-	}
-
-	private void checkMagic() {
-		int magic = classReader.readInt();
-		if (magic != 0xCAFEBABE) {
-			throw new RuntimeException("magic number is not 0xCAFEBABE but 0x"
-					+ Integer.toString(magic, 16));
-		}
+	public int getLength() {
+		return length;
 	}
 
 	public int getMinor() {
-		return minor;
+		return header.getMinor();
 	}
 
 	public int getMajor() {
-		return major;
+		return header.getMajor();
 	}
 
 	public ConstantPool getConstantPool() {
-		return constantPool;
+		return header.getConstantPool();
 	}
 
 	public boolean isPublic() {
-		return modifiers.contains(Modifier.PUBLIC);
+		return header.isPublic();
 	}
 
 	public boolean isFinal() {
-		return modifiers.contains(Modifier.FINAL);
+		return header.isFinal();
 	}
 
 	public boolean isSuper() {
-		return modifiers.contains(Modifier.SUPER);
+		return header.isSuper();
 	}
 
 	public boolean isInterface() {
-		return modifiers.contains(Modifier.INTERFACE);
+		return header.isInterface();
 	}
 
 	public boolean isAbstract() {
-		return modifiers.contains(Modifier.ABSTRACT);
+		return header.isAbstract();
 	}
 
 	public int getThisClassIndex() {
-		return thisClassIndex;
+		return header.getThisClassIndex();
 	}
 
 	public int getSuperClassIndex() {
-		return superClassIndex;
+		return header.getSuperClassIndex();
 	}
 
 	public Interfaces getInterfaces() {
-		return interfaces;
+		return header.getInterfaces();
 	}
 
 	public Fields getFields() {
@@ -242,6 +285,25 @@ public class ClassFile {
 		return attributes;
 	}
 
+	/**
+	 * Passes the call sites of all methods to the given visitor. Only the
+	 * invoke instructions are decoded and every referenced method is resolved
+	 * once. Combined with {@link ParseOption#LAZY_CONSTANT_POOL} and
+	 * {@link ParseOption#LAZY_ATTRIBUTES} nothing but the code attributes and
+	 * the referenced constants is parsed.
+	 *
+	 * @param visitor
+	 *            the visitor
+	 */
+	public void acceptInvocations(InvocationVisitor visitor) {
+		ConstantPool constantPool = getConstantPool();
+		for (MethodInfo methodInfo : methods) {
+			if (visitor.visitMethod(methodInfo)) {
+				methodInfo.acceptInvocations(constantPool, visitor);
+			}
+		}
+	}
+
 	/**
 	 * A simple {@code main} method to test the Classreader library. It reads a
 	 * single class file and dumps a few statistics to standard output.
@@ -274,7 +336,7 @@ public class ClassFile {
 
 		System.out.println();
 
-		ConstantPool cp = cf.constantPool;
+		ConstantPool cp = cf.getConstantPool();
 
 		System.out.println("constant pool:");
 		for (ConstantPoolInfo info : cp) {
@@ -26,9 +26,11 @@
  */
 package com.github.musikk.classreader;
 
+import java.io.Closeable;
 import java.io.File;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * A {@code ClassFileCollection} is an arbitrary collection of classes.
@@ -36,7 +38,11 @@ import java.util.List;
  * @author Werner Hahn
  * 
  */
-public abstract class ClassFileCollection {
+public abstract class ClassFileCollection implements Closeable {
+
+	private static final String JMOD_SUFFIX = ".jmod";
+
+	private static final String MODULE_DESCRIPTOR = "module-info.class";
 
 	/**
 	 * Returns the {@link ClassFile} with the given name. The name of a class is
@@ -50,6 +56,22 @@ public abstract class ClassFileCollection {
 	 */
 	public abstract ClassFile getClassFile(String className);
 
+	/**
+	 * Returns the {@link ClassFileHeader} of the class with the given name.
+	 * Implementations that parse classes on demand only read the header and
+	 * skip the rest of the class.
+	 *
+	 * @param className
+	 *            the name of the class
+	 * @return the header of the class or {@code null} if no class with the
+	 *         given name exists
+	 * @see ClassFileCollection#getClassFile(String)
+	 */
+	public ClassFileHeader getClassFileHeader(String className) {
+		ClassFile classFile = getClassFile(className);
+		return classFile != null ? classFile.getHeader() : null;
+	}
+
 	/**
 	 * Returns a {@link List} of class names this {@code ClassFileCollection}
 	 * has to offer (optional operation).
@@ -63,6 +85,89 @@ public abstract class ClassFileCollection {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * Releases the resources, e.g. open files, held by this
+	 * {@code ClassFileCollection}. {@link ClassFile}s that have already been
+	 * returned stay valid but no further classes can be looked up afterwards.
+	 * The default implementation does nothing.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Checks whether the given entry of a JAR denotes a class file.
+	 *
+	 * @param entryName
+	 *            the name of the entry, e.g. {@code bar/baz/Foo.class}
+	 * @return {@code true} if the entry is a class file
+	 */
+	static boolean isClassEntry(String entryName) {
+		return entryName.endsWith(".class");
+	}
+
+	/**
+	 * Checks whether the given entry of a module archive or run-time image is
+	 * the module descriptor, which is stored like a class but declares no
+	 * class.
+	 *
+	 * @param entryName
+	 *            the name of the entry relative to the root of the classes
+	 * @return {@code true} if the entry is {@code module-info.class}
+	 */
+	static boolean isModuleDescriptor(String entryName) {
+		return entryName.equals(MODULE_DESCRIPTOR);
+	}
+
+	/**
+	 * Converts the name of a class to the name of the corresponding entry in
+	 * a JAR, e.g. {@code bar.baz.Foo} to {@code bar/baz/Foo.class}.
+	 *
+	 * @param className
+	 *            the fully qualified name of the class
+	 * @return the name of the entry
+	 */
+	static String convertClassNameToEntry(String className) {
+		return className.replace('.', '/').concat(".class");
+	}
+
+	/**
+	 * Converts the name of a class file entry in a JAR to the name of the
+	 * class, e.g. {@code bar/baz/Foo.class} to {@code bar.baz.Foo}.
+	 *
+	 * @param entryName
+	 *            the name of the entry
+	 * @return the fully qualified name of the class
+	 */
+	static String convertEntryToClassName(String entryName) {
+		return entryName.substring(0, entryName.length() - ".class".length()).replace('/', '.');
+	}
+
+	/**
+	 * Checks whether the given {@link File} is the run-time image of a JDK,
+	 * i.e. the file {@code lib/modules} in its installation directory.
+	 *
+	 * @param file
+	 *            the {@code File} to check
+	 * @return {@code true} if the {@code File} is a run-time image
+	 */
+	private static boolean isRuntimeImage(File file) {
+		File parent = file.getAbsoluteFile().getParentFile();
+		return file.getName().equals("modules") && parent != null && parent.getName().equals("lib")
+				&& parent.getParentFile() != null;
+	}
+
+	/**
+	 * Creates a {@link ClassFileCollection} of the classes of the running JDK,
+	 * read from its run-time image. Requires JDK 9 or later.
+	 *
+	 * @return the {@code ClassFileCollection} of the platform classes
+	 * @see ClassFileRuntimeImage
+	 */
+	public static ClassFileCollection getRuntimeImageCollection() {
+		return new ClassFileRuntimeImage();
+	}
+
 	/**
 	 * Creates a lazy {@code ClassFileCollection} from the given JAR
 	 * {@link File}. Same as
@@ -81,7 +186,11 @@ public abstract class ClassFileCollection {
 
 	/**
 	 * Creates a {@code ClassFileCollection} from the given JAR {@link File}
-	 * with the specified mode.
+	 * with the specified mode. If the {@code File} is a directory, a
+	 * {@link ClassFileDirectory} is created regardless of the mode. Likewise a
+	 * jmod file ({@code *.jmod}) is opened as {@link ClassFileJmod} and the
+	 * run-time image of a JDK ({@code lib/modules}) as
+	 * {@link ClassFileRuntimeImage}.
 	 * 
 	 * @param jar
 	 *            the {@code File} to load
@@ -92,11 +201,24 @@ public abstract class ClassFileCollection {
 	 */
 	public static ClassFileCollection getClassFileCollection(File jar,
 			ClassFileJarMode mode) {
+		if (jar.isDirectory()) {
+			return new ClassFileDirectory(jar);
+		}
+		if (jar.getName().endsWith(JMOD_SUFFIX)) {
+			return new ClassFileJmod(jar);
+		}
+		if (isRuntimeImage(jar)) {
+			return new ClassFileRuntimeImage(jar.getAbsoluteFile().getParentFile().getParentFile());
+		}
 		switch (mode) {
 		case EAGER:
 			return new EagerClassFileJar(jar);
+		case PARALLEL:
+			return new EagerClassFileJar(jar, EagerClassFileJar.getDefaultExecutor());
 		case LAZY:
 			return new LazyClassFileJar(jar);
+		case MAPPED:
+			return new MappedClassFileJar(jar);
 		default:
 			throw new RuntimeException("unknown mode: " + mode.name());
 		}
@@ -136,4 +258,56 @@ public abstract class ClassFileCollection {
 		return new ClassFileJarCollection(mode, jars);
 	}
 
+	/**
+	 * Creates a {@link ClassFileCollection} from multiple JAR {@link File}s
+	 * that are opened and indexed in parallel by the given
+	 * {@link ExecutorService}. The {@code File}s are searched in the order
+	 * given.
+	 *
+	 * @param mode
+	 *            the mode of the {@code ClassFileCollection}s contained in this
+	 *            collection
+	 * @param executor
+	 *            the {@code ExecutorService} that opens the JARs
+	 * @param jars
+	 *            the {@code File}s to load
+	 * @return the {@code ClassFileCollection} with access to the classes
+	 *         contained in the given JAR {code File}s
+	 */
+	public static ClassFileCollection getClassFileJarCollection(
+			ClassFileJarMode mode, ExecutorService executor, File... jars) {
+		return new ClassFileJarCollection(mode, executor, jars);
+	}
+
+	/**
+	 * Creates a {@link ClassFileCollection} of a JAR {@link File} and the
+	 * JARs nested in it, e.g. a Spring Boot executable JAR, without
+	 * extracting the nested JARs.
+	 *
+	 * @param jar
+	 *            the outer JAR {@code File}
+	 * @return the {@code ClassFileCollection} with access to the classes of
+	 *         the JAR and its nested JARs
+	 * @see NestedClassFileJar
+	 */
+	public static NestedClassFileJar getNestedClassFileJar(File jar) {
+		return new NestedClassFileJar(jar);
+	}
+
+	/**
+	 * Wraps the given {@link ClassFileCollection} in a cache of parsed
+	 * classes that is bounded by the total size of the class files.
+	 *
+	 * @param classFiles
+	 *            the collection whose classes are cached
+	 * @param maximumBytes
+	 *            the maximum total size of the cached class files in bytes
+	 * @return the caching {@code ClassFileCollection}
+	 * @see CachingClassFileCollection
+	 */
+	public static CachingClassFileCollection getCachingClassFileCollection(
+			ClassFileCollection classFiles, long maximumBytes) {
+		return new CachingClassFileCollection(classFiles, maximumBytes);
+	}
+
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link ClassFileCollection} of a directory containing class files in
+ * the directory structure of their packages, e.g. the output directory of a
+ * compiler. The directory is walked once on creation; classes are read and
+ * parsed on every lookup.
+ * <p>
+ * Class files are read with a {@link FileChannel} into a buffer that is
+ * reused by the calling thread, so looking up a class allocates nothing but
+ * the parsed {@link ClassFile}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileDirectory extends ClassFileCollection {
+
+	private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * The buffer of each thread that class files are read into. A
+	 * {@code ClassFile} parsed without {@link ParseOption}s does not keep a
+	 * reference to the buffer, so it can be reused for the next class.
+	 */
+	static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+		}
+	};
+
+	private final Path directory;
+
+	/**
+	 * Maps class names to the class files.
+	 */
+	private final Map<String, Path> classFiles;
+
+	public ClassFileDirectory(File directory) {
+		this.directory = directory.toPath();
+		this.classFiles = new HashMap<>();
+		try {
+			Files.walkFileTree(this.directory, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && isClassEntry(file.getFileName().toString())) {
+						classFiles.put(convertPathToClassName(file), file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private String convertPathToClassName(Path file) {
+		Path relativePath = directory.relativize(file);
+		StringBuilder className = new StringBuilder();
+		for (Path name : relativePath) {
+			if (className.length() > 0) {
+				className.append('.');
+			}
+			className.append(name.toString());
+		}
+		return className.substring(0, className.length() - ".class".length());
+	}
+
+	@Override
+	public ClassFile getClassFile(String className) {
+		Path file = classFiles.get(className);
+		if (file == null) {
+			return null;
+		}
+		ByteBuffer buffer = read(file, BUFFER.get());
+		if (buffer == null) {
+			return null;
+		}
+		// keep the buffer in case it had to be enlarged
+		BUFFER.set(buffer);
+		return new ClassFile(buffer);
+	}
+
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+		Path file = classFiles.get(className);
+		if (file == null) {
+			return null;
+		}
+		// the header decodes its constant pool lazily from the buffer
+		ByteBuffer buffer = read(file, null);
+		return buffer != null ? ClassFile.scanHeader(buffer) : null;
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		return Collections.unmodifiableCollection(classFiles.keySet());
+	}
+
+	/**
+	 * Reads a file into the given buffer or a new one if it is too small. The
+	 * file may belong to any file system, e.g. the {@code jrt:/} file system
+	 * of a {@link ClassFileRuntimeImage}.
+	 *
+	 * @param file
+	 *            the file to read
+	 * @param buffer
+	 *            the buffer to reuse, may be {@code null}
+	 * @return the buffer holding the content of the file between its position
+	 *         and limit or {@code null} if the file has been deleted
+	 */
+	static ByteBuffer read(Path file, ByteBuffer buffer) {
+		try (SeekableByteChannel channel = Files.newByteChannel(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new RuntimeException("file is too large to be read: " + file);
+			}
+			if (buffer == null || buffer.capacity() < size) {
+				buffer = ByteBuffer.allocate((int) size);
+			}
+			((Buffer) buffer).clear();
+			((Buffer) buffer).limit((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new RuntimeException("file was truncated while reading: " + file);
+				}
+			}
+			((Buffer) buffer).flip();
+			return buffer;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import com.github.musikk.classreader.constantpool.ConstantPool;
+
+/**
+ * The header of a class file: everything up to and including the interfaces
+ * of the class. Fields, methods and attributes are not part of the header.
+ * <p>
+ * A header can be obtained without parsing the rest of the class with
+ * {@link ClassFile#scanHeader(java.nio.ByteBuffer)}. Such a header decodes
+ * its {@link ConstantPool} lazily (see {@link ParseOption#LAZY_CONSTANT_POOL}),
+ * so looking up the names of the class, its super class and its interfaces
+ * only decodes the entries that are actually needed.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileHeader {
+
+	/**
+	 * Minor version number.
+	 */
+	private int minor;
+	/**
+	 * Major version number.
+	 */
+	private int major;
+
+	/**
+	 * The {@link ConstantPool} of the class file.
+	 */
+	private ConstantPool constantPool;
+
+	private EnumSet<Modifier> modifiers;
+
+	/**
+	 * The index of the name of the class in the
+	 * {@link ClassFileHeader#constantPool ConstantPool}.
+	 */
+	private int thisClassIndex;
+	/**
+	 * The index of the name of the super class in the
+	 * {@link ClassFileHeader#constantPool ConstantPool} or {@code 0} if the
+	 * class has no super class.
+	 */
+	private int superClassIndex;
+
+	/**
+	 * The interfaces the class implements.
+	 */
+	private Interfaces interfaces;
+
+	private ClassFileHeader() {
+	}
+
+	/**
+	 * Reads the header from the given context. Afterwards the
+	 * {@link ClassReader} of the context is positioned at the fields of the
+	 * class.
+	 *
+	 * @param ctxt
+	 *            the context to read from
+	 * @return the header
+	 */
+	static ClassFileHeader getClassFileHeader(ClassReaderContext ctxt) {
+		ClassFileHeader header = new ClassFileHeader();
+		header.parseHeader(ctxt);
+		return header;
+	}
+
+	private void parseHeader(ClassReaderContext ctxt) {
+		ClassReader classReader = ctxt.getClassReader();
+		checkMagic(classReader);
+		readVersion(classReader);
+		readConstantPool(ctxt);
+		readFlags(classReader);
+		thisClassIndex = classReader.readUnsignedShort();
+		superClassIndex = classReader.readUnsignedShort();
+		interfaces = Interfaces.getInterfaces(ctxt);
+	}
+
+	/**
+	 * Reads and assigns the flags for this class.
+	 */
+	private void readFlags(ClassReader classReader) {
+		int accessFlags = classReader.readShort();
+		modifiers = Modifier.readModifiers(accessFlags, Modifier.Target.CLASS);
+	}
+
+	private void readConstantPool(ClassReaderContext ctxt) {
+		constantPool = ConstantPool.createConstantPool(ctxt);
+	}
+
+	private void readVersion(ClassReader classReader) {
+		minor = classReader.readUnsignedShort();
+		major = classReader.readUnsignedShort();
+	}
+
+	private static void checkMagic(ClassReader classReader) {
+		int magic = classReader.readInt();
+		if (magic != 0xCAFEBABE) {
+			throw new RuntimeException("magic number is not 0xCAFEBABE but 0x"
+					+ Integer.toString(magic, 16));
+		}
+	}
+
+	public int getMinor() {
+		return minor;
+	}
+
+	public int getMajor() {
+		return major;
+	}
+
+	public ConstantPool getConstantPool() {
+		return constantPool;
+	}
+
+	public boolean isPublic() {
+		return modifiers.contains(Modifier.PUBLIC);
+	}
+
+	public boolean isFinal() {
+		return modifiers.contains(Modifier.FINAL);
+	}
+
+	public boolean isSuper() {
+		return modifiers.contains(Modifier.SUPER);
+	}
+
+	public boolean isInterface() {
+		return modifiers.contains(Modifier.INTERFACE);
+	}
+
+	public boolean isAbstract() {
+		return modifiers.contains(Modifier.ABSTRACT);
+	}
+
+	public int getThisClassIndex() {
+		return thisClassIndex;
+	}
+
+	public int getSuperClassIndex() {
+		return superClassIndex;
+	}
+
+	public Interfaces getInterfaces() {
+		return interfaces;
+	}
+
+	/**
+	 * Returns the fully qualified name of the class, e.g. {@code bar.baz.Foo}.
+	 *
+	 * @return the name of the class
+	 */
+	public String getClassName() {
+		return getClassName(thisClassIndex);
+	}
+
+	/**
+	 * Returns the fully qualified name of the super class.
+	 *
+	 * @return the name of the super class or {@code null} if the class has no
+	 *         super class, i.e. it is {@code java.lang.Object}
+	 */
+	public String getSuperClassName() {
+		if (superClassIndex == 0) {
+			return null;
+		}
+		return getClassName(superClassIndex);
+	}
+
+	/**
+	 * Returns the fully qualified names of the interfaces the class
+	 * implements in the order of declaration.
+	 *
+	 * @return the names of the interfaces
+	 */
+	public List<String> getInterfaceNames() {
+		List<Integer> interfaceIndexes = interfaces.getInterfaceIndexes();
+		List<String> interfaceNames = new ArrayList<>(interfaceIndexes.size());
+		for (Integer interfaceIndex : interfaceIndexes) {
+			interfaceNames.add(getClassName(interfaceIndex));
+		}
+		return Collections.unmodifiableList(interfaceNames);
+	}
+
+	private String getClassName(int classIndex) {
+		int nameIndex = constantPool.getClassInfo(classIndex).getNameIndex();
+		return constantPool.getUtf8Info(nameIndex).getValue().replace('/', '.');
+	}
+
+}
@@ -27,28 +27,261 @@
 package com.github.musikk.classreader;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * A {@link ClassFileCollection} of several JARs, e.g. a class path. A class
+ * contained in more than one JAR is taken from the first one, later ones are
+ * shadowed.
+ * <p>
+ * An index from class names to JARs is built on creation, so looking up a
+ * class asks exactly one JAR regardless of the number of JARs. Directories of
+ * class files may be mixed with the JARs, they are opened as
+ * {@link ClassFileDirectory}s.
+ *
+ * @author Werner Hahn
+ *
+ */
 public class ClassFileJarCollection extends ClassFileCollection {
 
+	private final File[] jars;
 	private final ClassFileCollection[] collections;
 
+	/**
+	 * Maps class names to the position of the first JAR containing them.
+	 */
+	private final Map<String, Integer> index;
+
+	/**
+	 * Maps the names of classes contained in more than one JAR to all of
+	 * these JARs in the order of the class path.
+	 */
+	private final Map<String, List<File>> duplicates;
+
 	public ClassFileJarCollection(ClassFileJarMode mode, File... jars) {
-		collections = new ClassFileCollection[jars.length];
+		this(mode, null, jars);
+	}
+
+	/**
+	 * Creates a {@code ClassFileJarCollection} whose JARs are opened and
+	 * indexed by the given {@link ExecutorService}. This constructor blocks
+	 * until all JARs are indexed. The {@code ExecutorService} is not shut
+	 * down.
+	 *
+	 * @param mode
+	 *            the mode of the {@code ClassFileCollection}s of the JARs
+	 * @param executor
+	 *            the {@code ExecutorService} that opens the JARs or
+	 *            {@code null} to open them on the calling thread
+	 * @param jars
+	 *            the JARs in the order they are searched
+	 */
+	public ClassFileJarCollection(ClassFileJarMode mode, ExecutorService executor, File... jars) {
+		this.jars = jars.clone();
+		this.collections = new ClassFileCollection[jars.length];
+		this.index = new HashMap<>();
+		this.duplicates = new HashMap<>();
+
+		if (executor == null) {
+			try {
+				for (int i = 0; i < jars.length; i++) {
+					collections[i] = new OpenTask(mode, jars[i], null).call();
+				}
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+		} else {
+			openAll(mode, executor);
+		}
+
+		// the JARs are added in class path order, so the first one wins
 		for (int i = 0; i < jars.length; i++) {
-			collections[i] = ClassFileCollection.getClassFileCollection(
-					jars[i], mode);
+			for (String className : collections[i].getClassNames()) {
+				Integer first = index.get(className);
+				if (first == null) {
+					index.put(className, i);
+				} else {
+					List<File> jarsOfClass = duplicates.get(className);
+					if (jarsOfClass == null) {
+						jarsOfClass = new ArrayList<>(2);
+						jarsOfClass.add(jars[first]);
+						duplicates.put(className, jarsOfClass);
+					}
+					jarsOfClass.add(jars[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens all JARs on the given {@link ExecutorService}. If one of them
+	 * fails, the JARs that have not been started yet are skipped, but all
+	 * running tasks are waited for, so that every opened JAR is closed again.
+	 */
+	private void openAll(ClassFileJarMode mode, ExecutorService executor) {
+		AtomicBoolean abort = new AtomicBoolean();
+		List<Future<ClassFileCollection>> futures = new ArrayList<>(jars.length);
+		Throwable failure = null;
+		try {
+			for (File jar : jars) {
+				futures.add(executor.submit(new OpenTask(mode, jar, abort)));
+			}
+		} catch (RejectedExecutionException e) {
+			abort.set(true);
+			failure = e;
+		}
+
+		boolean interrupted = false;
+		for (int i = 0; i < futures.size(); i++) {
+			while (true) {
+				try {
+					// the collections are only written by this thread
+					collections[i] = futures.get(i).get();
+					break;
+				} catch (InterruptedException e) {
+					// keep waiting, the task may still open its JAR
+					interrupted = true;
+					abort.set(true);
+					if (failure == null) {
+						failure = e;
+					}
+				} catch (ExecutionException e) {
+					abort.set(true);
+					if (failure == null) {
+						failure = e.getCause();
+					}
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			close();
+			throw new RuntimeException("failed to index the JARs", failure);
 		}
 	}
 
 	@Override
 	public ClassFile getClassFile(String className) {
+		Integer jar = index.get(className);
+		return jar != null ? collections[jar].getClassFile(className) : null;
+	}
+
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+		Integer jar = index.get(className);
+		return jar != null ? collections[jar].getClassFileHeader(className) : null;
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		return Collections.unmodifiableCollection(index.keySet());
+	}
+
+	/**
+	 * Returns the JAR the class with the given name is taken from.
+	 *
+	 * @param className
+	 *            the name of the class
+	 * @return the first JAR containing the class or {@code null} if no JAR
+	 *         contains it
+	 */
+	public File getJar(String className) {
+		Integer jar = index.get(className);
+		return jar != null ? jars[jar] : null;
+	}
+
+	/**
+	 * Returns all JARs containing the class with the given name.
+	 *
+	 * @param className
+	 *            the name of the class
+	 * @return the JARs in class path order, the first one shadows the others;
+	 *         empty if no JAR contains the class
+	 */
+	public List<File> getJars(String className) {
+		List<File> jarsOfClass = duplicates.get(className);
+		if (jarsOfClass != null) {
+			return Collections.unmodifiableList(jarsOfClass);
+		}
+		File jar = getJar(className);
+		return jar != null ? Collections.singletonList(jar) : Collections.<File> emptyList();
+	}
+
+	/**
+	 * Returns the names of the classes contained in more than one JAR.
+	 *
+	 * @return the names of the shadowed classes
+	 * @see #getJars(String)
+	 */
+	public Set<String> getShadowedClassNames() {
+		return Collections.unmodifiableSet(duplicates.keySet());
+	}
+
+	@Override
+	public void close() {
 		for (ClassFileCollection collection : collections) {
-			ClassFile cf = collection.getClassFile(className);
-			if (cf != null) {
-				return cf;
+			if (collection != null) {
+				collection.close();
+			}
+		}
+	}
+
+	/**
+	 * Opens a JAR and indexes its classes.
+	 */
+	private static class OpenTask implements Callable<ClassFileCollection> {
+
+		private final ClassFileJarMode mode;
+		private final File jar;
+
+		/**
+		 * Set if opening another JAR has failed, {@code null} when opening
+		 * the JARs one after another.
+		 */
+		private final AtomicBoolean abort;
+
+		private OpenTask(ClassFileJarMode mode, File jar, AtomicBoolean abort) {
+			this.mode = mode;
+			this.jar = jar;
+			this.abort = abort;
+		}
+
+		/**
+		 * @return the opened collection or {@code null} if it has been skipped
+		 *         because another JAR failed
+		 */
+		@Override
+		public ClassFileCollection call() {
+			if (abort != null && abort.get()) {
+				return null;
+			}
+			ClassFileCollection collection = ClassFileCollection.getClassFileCollection(jar, mode);
+			try {
+				// lazy collections build their index now
+				collection.getClassNames();
+			} catch (RuntimeException e) {
+				collection.close();
+				throw e;
 			}
+			return collection;
 		}
-		return null;
+
 	}
 
 }
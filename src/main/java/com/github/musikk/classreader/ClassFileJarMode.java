@@ -37,11 +37,24 @@ public enum ClassFileJarMode {
 	 * on the size of the JAR.
 	 */
 	EAGER,
+	/**
+	 * Loads a JAR {@link File} completely like {@link #EAGER} but parses the
+	 * classes in parallel on a shared pool with one thread per available
+	 * processor while the JAR is read and inflated sequentially.
+	 */
+	PARALLEL,
 	/**
 	 * Loads a JAR {@link File} lazily. Every class is looked up as it is
-	 * needed. This is the default mode and recommended for every locally
-	 * available JAR.
+	 * needed. The JAR is kept open until the collection is closed. This is the
+	 * default mode and recommended for every locally available JAR.
+	 */
+	LAZY,
+	/**
+	 * Memory-maps a JAR {@link File} and reads its central directory once.
+	 * Every class is looked up as it is needed and parsed straight from the
+	 * mapped region without reopening the file. This is well suited for large
+	 * locally available JARs from which many classes are resolved.
 	 */
-	LAZY
+	MAPPED
 
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ClassFileCollection} of the run-time image ({@code lib/modules})
+ * of a JDK 9 or later, which replaces the {@code rt.jar} of earlier JDKs.
+ * The image is read through the {@code jrt:/} file system, which looks up
+ * resources in the index of the image instead of scanning it.
+ * <p>
+ * On creation only the packages of the image are listed to map each package
+ * to its module, so a class is found by a single lookup in the index. The
+ * names of all classes are collected on the first call to
+ * {@link #getClassNames()}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileRuntimeImage extends ClassFileCollection {
+
+	private static final URI JRT_URI = URI.create("jrt:/");
+
+	private final FileSystem fileSystem;
+
+	/**
+	 * Whether the file system has been opened by this collection and thus has
+	 * to be closed by it. The file system of the running JDK cannot be closed.
+	 */
+	private final boolean closeFileSystem;
+
+	/**
+	 * Maps package names to the directories of the modules containing them,
+	 * e.g. {@code java.lang} to {@code /modules/java.base}. A package only
+	 * belongs to a single module but the image also lists the modules that
+	 * merely contain subpackages of it.
+	 */
+	private final Map<String, List<Path>> packageModules;
+
+	private volatile Collection<String> classNames;
+
+	/**
+	 * Creates a collection of the classes of the running JDK.
+	 */
+	public ClassFileRuntimeImage() {
+		this(getRuntimeFileSystem(), false);
+	}
+
+	/**
+	 * Creates a collection of the classes of the JDK installed in the given
+	 * directory. The running JDK must be JDK 9 or later or the given JDK must
+	 * provide {@code lib/jrt-fs.jar}.
+	 *
+	 * @param javaHome
+	 *            the installation directory of the JDK
+	 */
+	public ClassFileRuntimeImage(File javaHome) {
+		this(newFileSystem(javaHome), true);
+	}
+
+	private ClassFileRuntimeImage(FileSystem fileSystem, boolean closeFileSystem) {
+		this.fileSystem = fileSystem;
+		this.closeFileSystem = closeFileSystem;
+		this.packageModules = new HashMap<>();
+		try (DirectoryStream<Path> packages = Files.newDirectoryStream(fileSystem.getPath("/packages"))) {
+			for (Path packageDirectory : packages) {
+				List<Path> modules = new ArrayList<>(1);
+				try (DirectoryStream<Path> moduleLinks = Files.newDirectoryStream(packageDirectory)) {
+					for (Path moduleLink : moduleLinks) {
+						modules.add(fileSystem.getPath("/modules", moduleLink.getFileName().toString()));
+					}
+				}
+				packageModules.put(packageDirectory.getFileName().toString(), modules);
+			}
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static FileSystem getRuntimeFileSystem() {
+		try {
+			return FileSystems.getFileSystem(JRT_URI);
+		} catch (ProviderNotFoundException e) {
+			throw new RuntimeException("the running JDK has no run-time image", e);
+		}
+	}
+
+	private static FileSystem newFileSystem(File javaHome) {
+		try {
+			return FileSystems.newFileSystem(JRT_URI,
+					Collections.singletonMap("java.home", javaHome.getAbsolutePath()));
+		} catch (IOException | ProviderNotFoundException e) {
+			throw new RuntimeException("cannot open the run-time image of " + javaHome, e);
+		}
+	}
+
+	private List<Path> getModules(String className) {
+		int packageEnd = className.lastIndexOf('.');
+		List<Path> modules = packageModules.get(packageEnd < 0 ? "" : className.substring(0, packageEnd));
+		return modules != null ? modules : Collections.<Path> emptyList();
+	}
+
+	@Override
+	public ClassFile getClassFile(String className) {
+		String entryName = convertClassNameToEntry(className);
+		for (Path module : getModules(className)) {
+			ByteBuffer buffer = ClassFileDirectory.read(module.resolve(entryName), ClassFileDirectory.BUFFER.get());
+			if (buffer != null) {
+				// keep the buffer in case it had to be enlarged
+				ClassFileDirectory.BUFFER.set(buffer);
+				return new ClassFile(buffer);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+		String entryName = convertClassNameToEntry(className);
+		for (Path module : getModules(className)) {
+			// the header decodes its constant pool lazily from the buffer
+			ByteBuffer buffer = ClassFileDirectory.read(module.resolve(entryName), null);
+			if (buffer != null) {
+				return ClassFile.scanHeader(buffer);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		Collection<String> classNames = this.classNames;
+		if (classNames == null) {
+			classNames = Collections.unmodifiableCollection(collectClassNames());
+			this.classNames = classNames;
+		}
+		return classNames;
+	}
+
+	private List<String> collectClassNames() {
+		final List<String> classNames = new ArrayList<>();
+		Set<Path> modules = new HashSet<>();
+		for (List<Path> packageModules : this.packageModules.values()) {
+			modules.addAll(packageModules);
+		}
+		for (final Path module : modules) {
+			try {
+				Files.walkFileTree(module, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						String entryName = module.relativize(file).toString();
+						if (isClassEntry(entryName) && !isModuleDescriptor(entryName)) {
+							classNames.add(convertEntryToClassName(entryName));
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return classNames;
+	}
+
+	@Override
+	public void close() {
+		if (closeFileSystem) {
+			try {
+				fileSystem.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.nio.ByteBuffer;
+
+import com.github.musikk.classreader.attributes.AttributeInfo;
+import com.github.musikk.classreader.constantpool.ConstantPool;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+
+/**
+ * A {@code ClassFileVisitor} receives the parts of a class file as they are
+ * read in a single pass by {@link ClassFile#accept(ByteBuffer, ClassFileVisitor)}.
+ * Nothing is materialized unless the visitor asks for it: most callbacks
+ * return a {@code boolean} that decides whether the nested parts are visited
+ * or skipped. All methods of this class do nothing and skip everything, so
+ * subclasses only override what they need.
+ * <p>
+ * The callbacks are invoked in the following order:
+ *
+ * <pre>
+ * visitHeader
+ * ( visitField [ visitAttribute* visitFieldEnd ] )*
+ * ( visitMethod [ visitAttribute* ( visitCode visitInstruction* visitExceptionHandler* visitAttribute* visitCodeEnd )? visitAttribute* visitMethodEnd ] )*
+ * visitAttribute*
+ * visitEnd
+ * </pre>
+ *
+ * Indexes refer to the {@link ConstantPool} of the {@link ClassFileHeader}
+ * which decodes its entries lazily.
+ *
+ * @author Werner Hahn
+ *
+ */
+public abstract class ClassFileVisitor {
+
+	/**
+	 * Visits the header of the class, i.e. version, constant pool, flags, this
+	 * and super class and interfaces.
+	 *
+	 * @param header
+	 *            the header
+	 * @return {@code true} to visit the rest of the class, {@code false} to
+	 *         stop right after the header
+	 */
+	public boolean visitHeader(ClassFileHeader header) {
+		return false;
+	}
+
+	/**
+	 * Visits a field.
+	 *
+	 * @param accessFlags
+	 *            the access flags of the field
+	 * @param nameIndex
+	 *            the constant pool index of the name
+	 * @param descriptorIndex
+	 *            the constant pool index of the descriptor
+	 * @return {@code true} to visit the attributes of the field
+	 */
+	public boolean visitField(int accessFlags, int nameIndex, int descriptorIndex) {
+		return false;
+	}
+
+	/**
+	 * Signals that all attributes of the current field have been visited.
+	 * Only invoked if {@link #visitField(int, int, int)} returned
+	 * {@code true}.
+	 */
+	public void visitFieldEnd() {
+	}
+
+	/**
+	 * Visits a method.
+	 *
+	 * @param accessFlags
+	 *            the access flags of the method
+	 * @param nameIndex
+	 *            the constant pool index of the name
+	 * @param descriptorIndex
+	 *            the constant pool index of the descriptor
+	 * @return {@code true} to visit the attributes and the code of the method
+	 */
+	public boolean visitMethod(int accessFlags, int nameIndex, int descriptorIndex) {
+		return false;
+	}
+
+	/**
+	 * Signals that all attributes of the current method have been visited.
+	 * Only invoked if {@link #visitMethod(int, int, int)} returned
+	 * {@code true}.
+	 */
+	public void visitMethodEnd() {
+	}
+
+	/**
+	 * Visits an attribute of the class, the current field, the current method
+	 * or the current code. {@code Code} attributes are not visited by this
+	 * method but by {@link #visitCode(int, int, int)}.
+	 *
+	 * @param attributeNameIndex
+	 *            the constant pool index of the name of the attribute
+	 * @param attributeName
+	 *            the name of the attribute
+	 * @return {@code true} to parse the attribute and pass it to
+	 *         {@link #visitAttributeInfo(AttributeInfo)}
+	 */
+	public boolean visitAttribute(int attributeNameIndex, String attributeName) {
+		return false;
+	}
+
+	/**
+	 * Visits a parsed attribute. Only invoked if
+	 * {@link #visitAttribute(int, String)} returned {@code true}.
+	 *
+	 * @param attributeInfo
+	 *            the parsed attribute
+	 */
+	public void visitAttributeInfo(AttributeInfo attributeInfo) {
+	}
+
+	/**
+	 * Visits the code of the current method.
+	 *
+	 * @param maxStack
+	 *            the maximum depth of the operand stack
+	 * @param maxLocals
+	 *            the number of local variables
+	 * @param codeLength
+	 *            the length of the byte code in bytes
+	 * @return {@code true} to visit the instructions
+	 */
+	public boolean visitCode(int maxStack, int maxLocals, int codeLength) {
+		return false;
+	}
+
+	/**
+	 * Visits an instruction of the current code. Only invoked if
+	 * {@link #visitCode(int, int, int)} returned {@code true}. No object is
+	 * created per instruction: offset, opcode and operands are read from the
+	 * given cursor which is positioned at the instruction. The cursor is only
+	 * valid during this call and must not be moved.
+	 *
+	 * @param instruction
+	 *            the cursor positioned at the instruction
+	 */
+	public void visitInstruction(InstructionCursor instruction) {
+	}
+
+	/**
+	 * Visits an entry of the exception table of the current code.
+	 *
+	 * @param startPc
+	 *            the start of the range (inclusive) the handler is active in
+	 * @param endPc
+	 *            the end of the range (exclusive) the handler is active in
+	 * @param handlerPc
+	 *            the start of the handler
+	 * @param catchType
+	 *            the constant pool index of the caught class or {@code 0} for
+	 *            all exceptions
+	 */
+	public void visitExceptionHandler(int startPc, int endPc, int handlerPc, int catchType) {
+	}
+
+	/**
+	 * Signals that the instructions, exception handlers and attributes of the
+	 * current code have been visited.
+	 */
+	public void visitCodeEnd() {
+	}
+
+	/**
+	 * Signals that the class has been visited completely. Not invoked if
+	 * {@link #visitHeader(ClassFileHeader)} returned {@code false}.
+	 */
+	public void visitEnd() {
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+
+import com.github.musikk.classreader.attributes.AttributeInfo;
+import com.github.musikk.classreader.attributes.AttributeType;
+import com.github.musikk.classreader.constantpool.ConstantPool;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+
+/**
+ * Drives a {@link ClassFileVisitor} over a class in a single pass. Parts the
+ * visitor is not interested in are skipped without being parsed.
+ *
+ * @author Werner Hahn
+ *
+ */
+class ClassFileWalker {
+
+	private static final String CODE_ATTRIBUTE_NAME = AttributeType.CODE.getName();
+
+	private final ByteBufferClassReader reader;
+	private final ByteBuffer buffer;
+	private final ClassReaderContext ctxt;
+	private final ClassFileVisitor visitor;
+
+	/**
+	 * The code of the current method if {@link #buffer} is not backed by an
+	 * array, reused for all methods of the class.
+	 */
+	private byte[] code;
+
+	ClassFileWalker(ByteBufferClassReader reader, ClassFileVisitor visitor) {
+		this.reader = reader;
+		this.buffer = reader.getBuffer();
+		this.ctxt = new ClassReaderContext(reader, EnumSet.of(ParseOption.LAZY_CONSTANT_POOL));
+		this.visitor = visitor;
+	}
+
+	void walk() {
+		ClassFileHeader header = ClassFileHeader.getClassFileHeader(ctxt);
+		if (!visitor.visitHeader(header)) {
+			reader.close();
+			return;
+		}
+
+		int fieldsCount = reader.readUnsignedShort();
+		for (int i = 0; i < fieldsCount; i++) {
+			int accessFlags = reader.readUnsignedShort();
+			int nameIndex = reader.readUnsignedShort();
+			int descriptorIndex = reader.readUnsignedShort();
+			if (visitor.visitField(accessFlags, nameIndex, descriptorIndex)) {
+				walkAttributes();
+				visitor.visitFieldEnd();
+			} else {
+				skipAttributes();
+			}
+		}
+
+		int methodsCount = reader.readUnsignedShort();
+		for (int i = 0; i < methodsCount; i++) {
+			int accessFlags = reader.readUnsignedShort();
+			int nameIndex = reader.readUnsignedShort();
+			int descriptorIndex = reader.readUnsignedShort();
+			if (visitor.visitMethod(accessFlags, nameIndex, descriptorIndex)) {
+				walkAttributes();
+				visitor.visitMethodEnd();
+			} else {
+				skipAttributes();
+			}
+		}
+
+		walkAttributes();
+		visitor.visitEnd();
+		reader.close();
+	}
+
+	private void walkAttributes() {
+		ConstantPool constantPool = ctxt.getConstantPool();
+
+		int attributesCount = reader.readUnsignedShort();
+		for (int i = 0; i < attributesCount; i++) {
+			int start = reader.getPosition();
+			int attributeNameIndex = reader.readUnsignedShort();
+			int attributeLength = reader.readInt();
+			int end = reader.getPosition() + attributeLength;
+
+			String attributeName = constantPool.getUtf8Info(attributeNameIndex).getValue();
+			if (CODE_ATTRIBUTE_NAME.equals(attributeName)) {
+				walkCode();
+			} else if (visitor.visitAttribute(attributeNameIndex, attributeName)) {
+				reader.setPosition(start);
+				visitor.visitAttributeInfo(AttributeInfo.getAttributeInfo(ctxt));
+			}
+			reader.setPosition(end);
+		}
+	}
+
+	private void skipAttributes() {
+		int attributesCount = reader.readUnsignedShort();
+		for (int i = 0; i < attributesCount; i++) {
+			reader.skipBytes(2);
+			int attributeLength = reader.readInt();
+			reader.skipBytes(attributeLength);
+		}
+	}
+
+	private void walkCode() {
+		int maxStack = reader.readUnsignedShort();
+		int maxLocals = reader.readUnsignedShort();
+		int codeLength = reader.readInt();
+
+		if (visitor.visitCode(maxStack, maxLocals, codeLength)) {
+			InstructionCursor cursor = getInstructionCursor(codeLength);
+			while (cursor.next()) {
+				visitor.visitInstruction(cursor);
+			}
+		}
+		reader.skipBytes(codeLength);
+
+		int exceptionTableLength = reader.readUnsignedShort();
+		for (int i = 0; i < exceptionTableLength; i++) {
+			int startPc = reader.readUnsignedShort();
+			int endPc = reader.readUnsignedShort();
+			int handlerPc = reader.readUnsignedShort();
+			int catchType = reader.readUnsignedShort();
+			visitor.visitExceptionHandler(startPc, endPc, handlerPc, catchType);
+		}
+
+		walkAttributes();
+		visitor.visitCodeEnd();
+	}
+
+	/**
+	 * Returns a cursor over the code starting at the current position of the
+	 * reader without moving it.
+	 */
+	private InstructionCursor getInstructionCursor(int codeLength) {
+		int position = reader.getPosition();
+		if (codeLength < 0 || codeLength > buffer.limit() - position) {
+			throw new RuntimeException("the code length " + codeLength + " exceeds the class file");
+		}
+		if (buffer.hasArray()) {
+			return new InstructionCursor(buffer.array(), buffer.arrayOffset() + position, codeLength);
+		}
+		if (code == null || code.length < codeLength) {
+			code = new byte[codeLength];
+		}
+		reader.readBytesFully(code, 0, codeLength);
+		reader.setPosition(position);
+		return new InstructionCursor(code, 0, codeLength);
+	}
+
+}
@@ -26,15 +26,44 @@
  */
 package com.github.musikk.classreader;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 import com.github.musikk.classreader.constantpool.ConstantPool;
 
 public class ClassReaderContext {
 
 	private final ClassReader classReader;
+	private final Set<ParseOption> options;
 	private ConstantPool constantPool;
 
 	public ClassReaderContext(ClassReader classReader) {
+		this(classReader, Collections.<ParseOption> emptySet());
+	}
+
+	public ClassReaderContext(ClassReader classReader, Collection<ParseOption> options) {
 		this.classReader = classReader;
+		this.options = options.isEmpty() ? EnumSet.noneOf(ParseOption.class) : EnumSet.copyOf(options);
+	}
+
+	/**
+	 * Creates a context with the same options and constant pool that reads
+	 * from the given reader.
+	 *
+	 * @param classReader
+	 *            the reader of the new context
+	 * @return the new context
+	 */
+	public ClassReaderContext withClassReader(ClassReader classReader) {
+		ClassReaderContext ctxt = new ClassReaderContext(classReader, options);
+		ctxt.setConstantPool(constantPool);
+		return ctxt;
+	}
+
+	public boolean hasOption(ParseOption option) {
+		return options.contains(option);
 	}
 
 	public ConstantPool getConstantPool() {
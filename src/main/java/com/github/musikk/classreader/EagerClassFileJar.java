@@ -30,22 +30,77 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import com.google.common.io.ByteStreams;
+
+/**
+ * A {@link ClassFileCollection} that parses all classes of a JAR {@link File}
+ * on creation.
+ * <p>
+ * If an {@link ExecutorService} is provided, reading and inflating the entries
+ * is separated from parsing them: the creating thread reads the entries one
+ * after another and hands their bytes to the {@code ExecutorService} which
+ * parses them in parallel.
+ * <p>
+ * Like {@link java.util.zip.ZipFile#getEntry(String)} the last of several
+ * entries with the same name wins.
+ *
+ * @author Werner Hahn
+ *
+ */
 public class EagerClassFileJar extends ClassFileCollection {
 
 	private final File jarFile;
 	private final Map<String, ClassFile> zipContent;
 
 	public EagerClassFileJar(File jarFile) {
+		this(jarFile, null);
+	}
+
+	/**
+	 * Creates an {@code EagerClassFileJar} whose classes are parsed by the
+	 * given {@link ExecutorService}. This constructor blocks until all classes
+	 * are parsed. The {@code ExecutorService} is not shut down.
+	 *
+	 * @param jarFile
+	 *            the JAR to load
+	 * @param executor
+	 *            the {@code ExecutorService} that parses the classes or
+	 *            {@code null} to parse them on the calling thread
+	 */
+	public EagerClassFileJar(File jarFile, ExecutorService executor) {
 		this.jarFile = jarFile;
 		this.zipContent = new HashMap<>();
-		parseContents();
+		if (executor == null) {
+			parseContents();
+		} else {
+			parseContents(executor);
+		}
+	}
+
+	/**
+	 * Returns the {@link ExecutorService} that is used by
+	 * {@link ClassFileJarMode#PARALLEL} and other parallel operations of this
+	 * library, e.g. building a call graph. It is shared by all of them, uses
+	 * one daemon thread per available processor and must not be shut down.
+	 *
+	 * @return the shared {@code ExecutorService}
+	 */
+	public static ExecutorService getDefaultExecutor() {
+		return DefaultExecutorHolder.EXECUTOR;
 	}
 
 	private void parseContents() {
@@ -56,18 +111,50 @@ public class EagerClassFileJar extends ClassFileCollection {
 				if (!isClassEntry(entryName)) {
 					continue;
 				}
-				zipContent.put(entryName, new ClassFile(zipIn));
+				zipContent.put(convertEntryToClassName(entryName), new ClassFile(zipIn));
 			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
-	private static boolean isClassEntry(String entryName) {
-		if (entryName.endsWith(".class")) {
-			return true;
-		} else {
-			return false;
+	private void parseContents(ExecutorService executor) {
+		List<String> classNames = new ArrayList<>();
+		List<Future<ClassFile>> parsedEntries = new ArrayList<>();
+		try (InputStream in = new FileInputStream(jarFile); ZipInputStream zipIn = new ZipInputStream(in)) {
+			ZipEntry entry = null;
+			while ((entry = zipIn.getNextEntry()) != null) {
+				String entryName = entry.getName();
+				if (!isClassEntry(entryName)) {
+					continue;
+				}
+				byte[] bytes = ByteStreams.toByteArray(zipIn);
+				classNames.add(convertEntryToClassName(entryName));
+				parsedEntries.add(executor.submit(new ParseTask(bytes)));
+			}
+		} catch (IOException e) {
+			cancel(parsedEntries);
+			throw new RuntimeException(e);
+		}
+
+		try {
+			// stored in entry order so that the last of several entries with the same name wins
+			for (int i = 0; i < parsedEntries.size(); i++) {
+				zipContent.put(classNames.get(i), parsedEntries.get(i).get());
+			}
+		} catch (InterruptedException e) {
+			cancel(parsedEntries);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			cancel(parsedEntries);
+			throw new RuntimeException("failed to parse " + jarFile, e.getCause());
+		}
+	}
+
+	private static void cancel(List<Future<ClassFile>> futures) {
+		for (Future<ClassFile> future : futures) {
+			future.cancel(false);
 		}
 	}
 
@@ -80,4 +167,27 @@ public class EagerClassFileJar extends ClassFileCollection {
 	public Collection<String> getClassNames() {
 		return Collections.unmodifiableCollection(this.zipContent.keySet());
 	}
+
+	private static class ParseTask implements Callable<ClassFile> {
+
+		private final byte[] bytes;
+
+		private ParseTask(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public ClassFile call() {
+			return new ClassFile(bytes, 0, bytes.length);
+		}
+
+	}
+
+	private static class DefaultExecutorHolder {
+
+		// the worker threads of a ForkJoinPool are daemon threads
+		private static final ExecutorService EXECUTOR = new ForkJoinPool();
+
+	}
+
 }
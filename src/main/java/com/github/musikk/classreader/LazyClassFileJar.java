@@ -29,13 +29,36 @@ package com.github.musikk.classreader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+/**
+ * A {@link ClassFileCollection} that parses classes of a JAR {@link File} as
+ * they are requested. The JAR is opened and indexed on first use and stays
+ * open until {@link #close()} is called. Lookups may be performed
+ * concurrently.
+ *
+ * @author Werner Hahn
+ *
+ */
 public class LazyClassFileJar extends ClassFileCollection {
 
 	private final File jarFile;
 
+	private volatile ZipFile zipFile;
+
+	/**
+	 * Maps class names to the entries of {@link #zipFile}.
+	 */
+	private volatile Map<String, ZipEntry> classEntries;
+
+	private volatile boolean closed;
+
 	public LazyClassFileJar(File jarFile) {
 		this.jarFile = jarFile;
 	}
@@ -43,13 +66,13 @@ public class LazyClassFileJar extends ClassFileCollection {
 	@Override
 	public ClassFile getClassFile(String className) {
 
-		String entryName = convertClassNameToEntry(className);
-		ZipEntry entry = new ZipEntry(entryName);
+		ensureOpen();
+		ZipEntry entry = classEntries.get(className);
+		if (entry == null) {
+			return null;
+		}
 
-		try (ZipFile zipFile = new ZipFile(jarFile); InputStream is = zipFile.getInputStream(entry)) {
-			if (is == null) {
-				return null;
-			}
+		try (InputStream is = zipFile.getInputStream(entry)) {
 			return new ClassFile(is);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
@@ -57,8 +80,77 @@ public class LazyClassFileJar extends ClassFileCollection {
 
 	}
 
-	private static String convertClassNameToEntry(String className) {
-		return className.replace('.', '/').concat(".class");
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+
+		ensureOpen();
+		ZipEntry entry = classEntries.get(className);
+		if (entry == null) {
+			return null;
+		}
+
+		try (InputStream is = zipFile.getInputStream(entry)) {
+			return ClassFile.scanHeader(is);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		ensureOpen();
+		return Collections.unmodifiableCollection(classEntries.keySet());
+	}
+
+	private void ensureOpen() {
+		checkNotClosed();
+		if (classEntries == null) {
+			open();
+		}
+	}
+
+	private void checkNotClosed() {
+		if (closed) {
+			throw new IllegalStateException("the JAR " + jarFile + " has already been closed");
+		}
+	}
+
+	private synchronized void open() {
+		checkNotClosed();
+		if (classEntries != null) {
+			return;
+		}
+
+		try {
+			ZipFile zipFile = new ZipFile(jarFile);
+			Map<String, ZipEntry> classEntries = new HashMap<>(zipFile.size() * 4 / 3 + 1);
+			for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+				ZipEntry entry = entries.nextElement();
+				String entryName = entry.getName();
+				if (isClassEntry(entryName)) {
+					// ZipFile reads the last of several entries with the same name
+					classEntries.put(convertEntryToClassName(entryName), entry);
+				}
+			}
+			// classEntries is assigned last, it signals that zipFile is available
+			this.zipFile = zipFile;
+			this.classEntries = classEntries;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		if (zipFile != null) {
+			try {
+				zipFile.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 	}
 
 }
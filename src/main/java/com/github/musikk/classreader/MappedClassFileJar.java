@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link ClassFileCollection} that memory-maps a JAR {@link File} and reads
+ * its central directory once. Classes are parsed on every lookup directly
+ * from the mapped region (stored entries) or from the inflated bytes
+ * (deflated entries), without opening the file again.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class MappedClassFileJar extends ClassFileCollection {
+
+	/**
+	 * The archive or {@code null} once this collection has been closed.
+	 */
+	private volatile ZipArchive archive;
+
+	/**
+	 * Maps class names to the entries of the archive.
+	 */
+	private final Map<String, ZipArchive.Entry> classEntries;
+
+	public MappedClassFileJar(File jarFile) {
+		this(ZipArchive.getZipArchive(map(jarFile)));
+	}
+
+	MappedClassFileJar(ZipArchive archive) {
+		this(archive, "");
+	}
+
+	/**
+	 * Creates a collection of the class files below the given directory of
+	 * a module archive, e.g. {@code classes/} in a jmod file. The module
+	 * descriptor {@code module-info.class} is not a class and is skipped.
+	 *
+	 * @param archive
+	 *            the archive
+	 * @param prefix
+	 *            the directory of the classes ending with a slash or the empty
+	 *            string for the root of the archive
+	 */
+	MappedClassFileJar(ZipArchive archive, String prefix) {
+		this.archive = archive;
+		this.classEntries = new HashMap<>();
+		for (ZipArchive.Entry entry : archive.getEntries()) {
+			String entryName = entry.getName();
+			if (!entryName.startsWith(prefix) || !isClassEntry(entryName)) {
+				continue;
+			}
+			String classEntryName = entryName.substring(prefix.length());
+			if (!prefix.isEmpty() && isModuleDescriptor(classEntryName)) {
+				continue;
+			}
+			classEntries.put(convertEntryToClassName(classEntryName), entry);
+		}
+	}
+
+	static ByteBuffer map(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new RuntimeException("file is too large to be mapped: " + file);
+			}
+			// the mapping stays valid after the channel has been closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public ClassFile getClassFile(String className) {
+		ZipArchive archive = getArchive();
+		ZipArchive.Entry entry = classEntries.get(className);
+		if (entry == null) {
+			return null;
+		}
+		return new ClassFile(archive.getContent(entry));
+	}
+
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+		ZipArchive archive = getArchive();
+		ZipArchive.Entry entry = classEntries.get(className);
+		if (entry == null) {
+			return null;
+		}
+		return ClassFile.scanHeader(archive.getContent(entry));
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		getArchive();
+		return Collections.unmodifiableCollection(classEntries.keySet());
+	}
+
+	private ZipArchive getArchive() {
+		ZipArchive archive = this.archive;
+		if (archive == null) {
+			throw new IllegalStateException("the JAR has already been closed");
+		}
+		return archive;
+	}
+
+	/**
+	 * Drops the mapping of the JAR. Java offers no way to unmap a file
+	 * explicitly, it is unmapped once the mapping has been garbage collected.
+	 */
+	@Override
+	public void close() {
+		archive = null;
+	}
+
+}
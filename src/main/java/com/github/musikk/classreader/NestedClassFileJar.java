@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ClassFileCollection} of a JAR containing other JARs, e.g. a Spring
+ * Boot executable JAR with its libraries in {@code BOOT-INF/lib/} or a WAR
+ * with {@code WEB-INF/lib/} and {@code WEB-INF/lib-provided/}. JARs in other
+ * directories are resources and are ignored. The nested JARs are read in
+ * place without extracting them: the outer JAR is memory-mapped, nested JARs
+ * that are stored uncompressed are accessed as regions of the mapping and
+ * compressed ones are inflated into memory once on creation.
+ * <p>
+ * All classes are indexed on creation and found by a single lookup. Classes
+ * of the outer JAR come first, either from its root or from
+ * {@code BOOT-INF/classes/} or {@code WEB-INF/classes/}, followed by the
+ * nested JARs in the order of {@code BOOT-INF/classpath.idx} if present and
+ * the order of the archive otherwise. A class contained more than once is
+ * taken from the first location. Module descriptors are skipped.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class NestedClassFileJar extends ClassFileCollection {
+
+	private static final String JAR_SUFFIX = ".jar";
+
+	private static final String[] CLASSES_DIRECTORIES = { "BOOT-INF/classes/", "WEB-INF/classes/" };
+
+	private static final String[] LIB_DIRECTORIES = { "BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/" };
+
+	/**
+	 * The class path order of the nested JARs written by Spring Boot, one
+	 * line {@code - "BOOT-INF/lib/foo.jar"} per JAR.
+	 */
+	private static final String CLASSPATH_INDEX = "BOOT-INF/classpath.idx";
+
+	private final List<String> nestedJarNames;
+
+	/**
+	 * Maps class names to the archive and entry of the first class file
+	 * defining them; {@code null} once this collection has been closed.
+	 */
+	private volatile Map<String, ClassEntry> index;
+
+	public NestedClassFileJar(File jarFile) {
+		ZipArchive archive = ZipArchive.getZipArchive(MappedClassFileJar.map(jarFile));
+		Map<String, ClassEntry> index = new HashMap<>();
+		Map<String, ZipArchive.Entry> nestedJarEntries = new LinkedHashMap<>();
+		for (String nestedJarName : readClasspathIndex(archive)) {
+			ZipArchive.Entry entry = archive.getEntry(nestedJarName);
+			if (entry != null) {
+				nestedJarEntries.put(nestedJarName, entry);
+			}
+		}
+		for (ZipArchive.Entry entry : archive.getEntries()) {
+			String entryName = entry.getName();
+			if (isNestedJarEntry(entryName)) {
+				if (!nestedJarEntries.containsKey(entryName)) {
+					nestedJarEntries.put(entryName, entry);
+				}
+			} else if (isClassEntry(entryName)) {
+				addClass(index, stripClassesDirectory(entryName), archive, entry, null);
+			}
+		}
+		for (Map.Entry<String, ZipArchive.Entry> nestedJar : nestedJarEntries.entrySet()) {
+			// a slice of the mapping if the JAR is stored, inflated otherwise
+			ZipArchive nestedArchive = ZipArchive.getZipArchive(archive.getContent(nestedJar.getValue()));
+			for (ZipArchive.Entry entry : nestedArchive.getEntries()) {
+				if (isClassEntry(entry.getName())) {
+					addClass(index, entry.getName(), nestedArchive, entry, nestedJar.getKey());
+				}
+			}
+		}
+		this.nestedJarNames = Collections.unmodifiableList(new ArrayList<>(nestedJarEntries.keySet()));
+		this.index = index;
+	}
+
+	private static boolean isNestedJarEntry(String entryName) {
+		if (!entryName.endsWith(JAR_SUFFIX)) {
+			return false;
+		}
+		for (String libDirectory : LIB_DIRECTORIES) {
+			if (entryName.startsWith(libDirectory)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the names of the nested JARs from the class path index.
+	 *
+	 * @return the names in class path order, empty if there is no index
+	 */
+	private static List<String> readClasspathIndex(ZipArchive archive) {
+		ZipArchive.Entry entry = archive.getEntry(CLASSPATH_INDEX);
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+		List<String> nestedJarNames = new ArrayList<>();
+		String content = StandardCharsets.UTF_8.decode(archive.getContent(entry)).toString();
+		for (String line : content.split("\\r?\\n")) {
+			line = line.trim();
+			if (line.startsWith("- \"") && line.endsWith("\"") && line.length() > 4) {
+				nestedJarNames.add(line.substring(3, line.length() - 1));
+			}
+		}
+		return nestedJarNames;
+	}
+
+	private static String stripClassesDirectory(String entryName) {
+		for (String classesDirectory : CLASSES_DIRECTORIES) {
+			if (entryName.startsWith(classesDirectory)) {
+				return entryName.substring(classesDirectory.length());
+			}
+		}
+		return entryName;
+	}
+
+	private static void addClass(Map<String, ClassEntry> index, String entryName, ZipArchive archive,
+			ZipArchive.Entry entry, String nestedJarName) {
+		if (isModuleDescriptor(entryName)) {
+			return;
+		}
+		String className = convertEntryToClassName(entryName);
+		if (!index.containsKey(className)) {
+			index.put(className, new ClassEntry(archive, entry, nestedJarName));
+		}
+	}
+
+	@Override
+	public ClassFile getClassFile(String className) {
+		ClassEntry classEntry = getIndex().get(className);
+		if (classEntry == null) {
+			return null;
+		}
+		return new ClassFile(classEntry.archive.getContent(classEntry.entry));
+	}
+
+	@Override
+	public ClassFileHeader getClassFileHeader(String className) {
+		ClassEntry classEntry = getIndex().get(className);
+		if (classEntry == null) {
+			return null;
+		}
+		return ClassFile.scanHeader(classEntry.archive.getContent(classEntry.entry));
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		return Collections.unmodifiableCollection(getIndex().keySet());
+	}
+
+	private Map<String, ClassEntry> getIndex() {
+		Map<String, ClassEntry> index = this.index;
+		if (index == null) {
+			throw new IllegalStateException("the JAR has already been closed");
+		}
+		return index;
+	}
+
+	/**
+	 * Drops the index and with it the mapping of the JAR and the inflated
+	 * nested JARs.
+	 */
+	@Override
+	public void close() {
+		index = null;
+	}
+
+	/**
+	 * Returns the names of the nested JARs in the order they are searched,
+	 * e.g. {@code BOOT-INF/lib/guava-15.0.jar}.
+	 *
+	 * @return the names of the nested JAR entries
+	 */
+	public List<String> getNestedJarNames() {
+		return nestedJarNames;
+	}
+
+	/**
+	 * Returns the name of the nested JAR the class with the given name is
+	 * taken from.
+	 *
+	 * @param className
+	 *            the name of the class
+	 * @return the name of the nested JAR entry or {@code null} if the class is
+	 *         contained in the outer JAR itself or does not exist
+	 */
+	public String getNestedJarName(String className) {
+		ClassEntry classEntry = getIndex().get(className);
+		return classEntry != null ? classEntry.nestedJarName : null;
+	}
+
+	private static final class ClassEntry {
+
+		private final ZipArchive archive;
+		private final ZipArchive.Entry entry;
+
+		/**
+		 * The name of the nested JAR or {@code null} for the outer JAR.
+		 */
+		private final String nestedJarName;
+
+		ClassEntry(ZipArchive archive, ZipArchive.Entry entry, String nestedJarName) {
+			this.archive = archive;
+			this.entry = entry;
+			this.nestedJarName = nestedJarName;
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Options that change how a {@link ClassFile} is parsed. Without any options
+ * every structure except the byte code is parsed when the {@code ClassFile} is
+ * created.
+ *
+ * @author Werner Hahn
+ *
+ */
+public enum ParseOption {
+
+	/**
+	 * Only records where the entries of the constant pool are located and
+	 * decodes an entry when it is accessed for the first time. The decoded
+	 * entry is cached. This pays off if only a few entries are needed, e.g.
+	 * the names of the class and its super class.
+	 * <p>
+	 * The bytes of the class are referenced by the constant pool as long as
+	 * the {@link ClassFile} is reachable, so the backing {@link ByteBuffer}
+	 * must not be modified afterwards. Entries are decoded under a lock, so
+	 * the {@code ClassFile} may be shared between threads.
+	 */
+	LAZY_CONSTANT_POOL,
+
+	/**
+	 * Only records the name indexes and positions of the attributes of the
+	 * class, its fields, methods and code and parses an attribute when it is
+	 * accessed for the first time. Most attributes, e.g. stack map tables,
+	 * local variable tables and annotations, are rarely needed and make up a
+	 * large part of a class file.
+	 * <p>
+	 * The bytes of the class are referenced by every {@code Attributes} until
+	 * all of its attributes have been parsed, so the backing
+	 * {@link ByteBuffer} must not be modified afterwards. Attributes are
+	 * parsed under a lock, so the {@code ClassFile} may be shared between
+	 * threads.
+	 */
+	LAZY_ATTRIBUTES
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A read-only view of a ZIP archive that is completely available in a
+ * {@link ByteBuffer}, typically a memory-mapped file. The central directory is
+ * parsed once on creation. The content of stored entries is handed out as a
+ * slice of the archive buffer, deflated entries are inflated into a heap
+ * buffer of the exact size.
+ * <p>
+ * Data preceding the archive (e.g. the header of a jmod file or the stub of a
+ * self-extracting archive) is accounted for. ZIP64 archives and encrypted
+ * entries are not supported.
+ *
+ * @author Werner Hahn
+ *
+ */
+class ZipArchive {
+
+	private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+	private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+	private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+	private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+	private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+
+	private static final int FLAG_ENCRYPTED = 0x1;
+
+	/**
+	 * The archive with little-endian byte order. Only absolute reads are
+	 * performed, so it may be shared between threads.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The entries by name in the order of the central directory.
+	 */
+	private final Map<String, Entry> entries;
+
+	private ZipArchive(ByteBuffer buffer, Map<String, Entry> entries) {
+		this.buffer = buffer;
+		this.entries = entries;
+	}
+
+	/**
+	 * Returns the entry with the given name.
+	 *
+	 * @param name
+	 *            the name of the entry, e.g. {@code foo/Bar.class}
+	 * @return the entry or {@code null} if no such entry exists
+	 */
+	Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	/**
+	 * Returns the uncompressed content of the given entry. The position of the
+	 * returned buffer is zero and its limit is the size of the entry.
+	 *
+	 * @param entry
+	 *            an entry of this archive
+	 * @return the content of the entry
+	 */
+	ByteBuffer getContent(Entry entry) {
+		int dataOffset = getDataOffset(entry);
+		switch (entry.method) {
+		case METHOD_STORED:
+			return slice(dataOffset, entry.size);
+		case METHOD_DEFLATED:
+			return ByteBuffer.wrap(inflate(entry, dataOffset));
+		default:
+			throw new RuntimeException("unsupported compression method " + entry.method
+					+ " for entry " + entry.name);
+		}
+	}
+
+	private int getDataOffset(Entry entry) {
+		int localHeaderOffset = entry.localHeaderOffset;
+		if (buffer.getInt(localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+			throw new RuntimeException("invalid local header for entry " + entry.name);
+		}
+		int nameLength = buffer.getShort(localHeaderOffset + 26) & 0xFFFF;
+		int extraLength = buffer.getShort(localHeaderOffset + 28) & 0xFFFF;
+		return localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+	}
+
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer content = buffer.duplicate();
+		// the Buffer casts keep the calls binary compatible with Java 7 and 8
+		((Buffer) content).limit(offset + length);
+		((Buffer) content).position(offset);
+		return content.slice();
+	}
+
+	private byte[] inflate(Entry entry, int dataOffset) {
+		byte[] input;
+		int inputOffset;
+		if (buffer.hasArray()) {
+			input = buffer.array();
+			inputOffset = buffer.arrayOffset() + dataOffset;
+		} else {
+			// one extra zero byte is required by the inflater in nowrap mode
+			input = new byte[entry.compressedSize + 1];
+			inputOffset = 0;
+			slice(dataOffset, entry.compressedSize).get(input, 0, entry.compressedSize);
+		}
+
+		byte[] output = new byte[entry.size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(input, inputOffset, Math.min(entry.compressedSize + 1, input.length - inputOffset));
+			int written = 0;
+			while (written < output.length) {
+				int inflated = inflater.inflate(output, written, output.length - written);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				written += inflated;
+			}
+			if (written != output.length) {
+				throw new RuntimeException("entry " + entry.name + " is truncated: expected " + output.length
+						+ " bytes but inflated " + written);
+			}
+		} catch (DataFormatException e) {
+			throw new RuntimeException("entry " + entry.name + " is corrupt", e);
+		} finally {
+			inflater.end();
+		}
+		return output;
+	}
+
+	/**
+	 * Parses the central directory of the archive contained in the given
+	 * buffer. The buffer must not be modified afterwards.
+	 *
+	 * @param archive
+	 *            the buffer containing the complete archive between its
+	 *            position and limit
+	 * @return the {@code ZipArchive}
+	 */
+	static ZipArchive getZipArchive(ByteBuffer archive) {
+		ByteBuffer buffer = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+		int endOfCentralDirectory = findEndOfCentralDirectory(buffer);
+		if ((buffer.getShort(endOfCentralDirectory + 4) & 0xFFFF) != 0) {
+			throw new RuntimeException("multi-volume archives are not supported");
+		}
+		int entryCount = buffer.getShort(endOfCentralDirectory + 10) & 0xFFFF;
+		long centralDirectorySize = buffer.getInt(endOfCentralDirectory + 12) & 0xFFFFFFFFL;
+		long centralDirectoryOffset = buffer.getInt(endOfCentralDirectory + 16) & 0xFFFFFFFFL;
+		if (entryCount == 0xFFFF || centralDirectorySize == 0xFFFFFFFFL || centralDirectoryOffset == 0xFFFFFFFFL) {
+			throw new RuntimeException("ZIP64 archives are not supported");
+		}
+
+		/*
+		 * Offsets in the archive are relative to its start, which is not
+		 * necessarily the start of the buffer if something has been prepended.
+		 */
+		int base = (int) (endOfCentralDirectory - centralDirectorySize - centralDirectoryOffset);
+		if (base < 0) {
+			throw new RuntimeException("invalid central directory offset " + centralDirectoryOffset);
+		}
+
+		Map<String, Entry> entries = new LinkedHashMap<>(entryCount * 4 / 3 + 1);
+		int position = (int) (base + centralDirectoryOffset);
+		for (int i = 0; i < entryCount; i++) {
+			if (buffer.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+				throw new RuntimeException("invalid central directory header at offset " + position);
+			}
+			int flags = buffer.getShort(position + 8) & 0xFFFF;
+			int method = buffer.getShort(position + 10) & 0xFFFF;
+			long compressedSize = buffer.getInt(position + 20) & 0xFFFFFFFFL;
+			long size = buffer.getInt(position + 24) & 0xFFFFFFFFL;
+			int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+			long localHeaderOffset = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+
+			String name = readName(buffer, position + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+			if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+				throw new RuntimeException("ZIP64 entries are not supported: " + name);
+			}
+			if ((flags & FLAG_ENCRYPTED) != 0) {
+				throw new RuntimeException("encrypted entries are not supported: " + name);
+			}
+
+			// like ZipFile.getEntry the last of several entries with the same name wins
+			entries.put(name, new Entry(name, method, (int) compressedSize, (int) size,
+					(int) (base + localHeaderOffset)));
+			position += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+
+		return new ZipArchive(buffer, entries);
+	}
+
+	private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+		int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+		int first = Math.max(0, last - MAX_COMMENT_LENGTH);
+		for (int position = last; position >= first; position--) {
+			if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+				return position;
+			}
+		}
+		throw new RuntimeException("not a ZIP archive: end of central directory not found");
+	}
+
+	private static String readName(ByteBuffer buffer, int offset, int length) {
+		byte[] name = new byte[length];
+		for (int i = 0; i < length; i++) {
+			name[i] = buffer.get(offset + i);
+		}
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * An entry of the central directory.
+	 */
+	static class Entry {
+
+		private final String name;
+		private final int method;
+		private final int compressedSize;
+		private final int size;
+		private final int localHeaderOffset;
+
+		private Entry(String name, int method, int compressedSize, int size, int localHeaderOffset) {
+			this.name = name;
+			this.method = method;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		int getSize() {
+			return size;
+		}
+
+		boolean isStored() {
+			return method == METHOD_STORED;
+		}
+
+	}
+
+}
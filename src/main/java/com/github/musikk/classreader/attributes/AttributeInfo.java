@@ -60,7 +60,7 @@ public class AttributeInfo {
 		return info;
 	}
 
-	protected static AttributeInfo getAttributeInfo(ClassReaderContext ctxt) {
+	public static AttributeInfo getAttributeInfo(ClassReaderContext ctxt) {
 		ClassReader reader = ctxt.getClassReader();
 
 		int attributeNameIndex = reader.readUnsignedShort();
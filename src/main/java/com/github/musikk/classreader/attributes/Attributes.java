@@ -26,42 +26,242 @@
  */
 package com.github.musikk.classreader.attributes;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import com.github.musikk.classreader.ByteBufferClassReader;
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.ClassReaderContext;
+import com.github.musikk.classreader.ParseOption;
+import com.github.musikk.classreader.constantpool.ConstantPool;
 import com.google.common.collect.Iterators;
 
+/**
+ * The attributes of a class, field, method or code. With
+ * {@link ParseOption#LAZY_ATTRIBUTES} only the name index and the position of
+ * every attribute are recorded; an attribute is parsed when it is accessed for
+ * the first time. As soon as all attributes have been parsed the reference to
+ * the bytes of the class is dropped, so {@link #getAttributeInfos()} can be
+ * used to release them early.
+ */
 public class Attributes implements Iterable<AttributeInfo> {
 
-	private final List<AttributeInfo> attributeInfos;
+	/**
+	 * The attributes in the order of the class file. Slots of attributes that
+	 * have not been parsed yet are {@code null}.
+	 */
+	private final AttributeInfo[] attributeInfos;
+
+	private final int[] attributeNameIndexes;
+
+	/**
+	 * The positions in {@link #classBytes} of the attributes (starting with
+	 * their name index) if they are parsed lazily, otherwise {@code null}.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The context the attributes were read in if they are parsed lazily and
+	 * not all of them have been parsed yet, otherwise {@code null}.
+	 */
+	private ClassReaderContext ctxt;
+
+	/**
+	 * The bytes of the class if the attributes are parsed lazily and not all
+	 * of them have been parsed yet, otherwise {@code null}.
+	 */
+	private ByteBuffer classBytes;
 
-	private Attributes(List<AttributeInfo> attributeInfos) {
+	private int unparsedCount;
+
+	private Attributes(AttributeInfo[] attributeInfos, int[] attributeNameIndexes) {
 		this.attributeInfos = attributeInfos;
+		this.attributeNameIndexes = attributeNameIndexes;
+		this.offsets = null;
+	}
+
+	private Attributes(int[] attributeNameIndexes, int[] offsets, ClassReaderContext ctxt, ByteBuffer classBytes) {
+		this.attributeInfos = new AttributeInfo[attributeNameIndexes.length];
+		this.attributeNameIndexes = attributeNameIndexes;
+		this.offsets = offsets;
+		this.ctxt = ctxt;
+		this.classBytes = classBytes;
+		this.unparsedCount = attributeNameIndexes.length;
+	}
+
+	/**
+	 * Returns the attribute at the given position, parsing it first if
+	 * necessary. Lazy attributes are parsed and published under a lock
+	 * because a {@code ClassFile} may be shared between threads.
+	 */
+	private AttributeInfo resolve(int i) {
+		if (offsets == null) {
+			return attributeInfos[i];
+		}
+		synchronized (attributeInfos) {
+			AttributeInfo attributeInfo = attributeInfos[i];
+			if (attributeInfo == null) {
+				ByteBufferClassReader reader = new ByteBufferClassReader(classBytes);
+				reader.setPosition(offsets[i]);
+				attributeInfo = AttributeInfo.getAttributeInfo(ctxt.withClassReader(reader));
+				attributeInfos[i] = attributeInfo;
+				if (--unparsedCount == 0) {
+					ctxt = null;
+					classBytes = null;
+				}
+			}
+			return attributeInfo;
+		}
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 *
+	 * @return the number of attributes
+	 */
+	public int size() {
+		return attributeInfos.length;
+	}
+
+	/**
+	 * Returns the attribute at the given position.
+	 *
+	 * @param i
+	 *            the position of the attribute
+	 * @return the attribute
+	 */
+	public AttributeInfo getAttributeInfo(int i) {
+		return resolve(i);
+	}
+
+	/**
+	 * Returns the constant pool index of the name of the attribute at the
+	 * given position. The attribute is not parsed.
+	 *
+	 * @param i
+	 *            the position of the attribute
+	 * @return the constant pool index of the name
+	 */
+	public int getAttributeNameIndex(int i) {
+		return attributeNameIndexes[i];
 	}
 
+	/**
+	 * Returns the first attribute of the given type. Other attributes are not
+	 * parsed.
+	 *
+	 * @param constantPool
+	 *            the constant pool of the class
+	 * @param attributeType
+	 *            the type of the attribute
+	 * @return the attribute or {@code null} if there is no such attribute
+	 */
+	public AttributeInfo getAttributeInfo(ConstantPool constantPool, AttributeType attributeType) {
+		String attributeName = attributeType.getName();
+		for (int i = 0; i < attributeNameIndexes.length; i++) {
+			if (attributeName.equals(constantPool.getUtf8Info(attributeNameIndexes[i]).getValue())) {
+				return resolve(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns all attributes of the given type. Other attributes are not
+	 * parsed.
+	 *
+	 * @param constantPool
+	 *            the constant pool of the class
+	 * @param attributeType
+	 *            the type of the attributes
+	 * @return the attributes in class file order
+	 */
+	public List<AttributeInfo> getAttributeInfos(ConstantPool constantPool, AttributeType attributeType) {
+		String attributeName = attributeType.getName();
+		List<AttributeInfo> result = new ArrayList<>();
+		for (int i = 0; i < attributeNameIndexes.length; i++) {
+			if (attributeName.equals(constantPool.getUtf8Info(attributeNameIndexes[i]).getValue())) {
+				result.add(resolve(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all attributes, parsing them first if necessary.
+	 *
+	 * @return the attributes
+	 */
 	public List<AttributeInfo> getAttributeInfos() {
-		return Collections.unmodifiableList(attributeInfos);
+		if (offsets != null) {
+			for (int i = 0; i < attributeInfos.length; i++) {
+				resolve(i);
+			}
+		}
+		return Collections.unmodifiableList(Arrays.asList(attributeInfos));
 	}
 
 	public static Attributes getAttributes(ClassReaderContext ctxt) {
 		ClassReader reader = ctxt.getClassReader();
+		if (ctxt.hasOption(ParseOption.LAZY_ATTRIBUTES) && reader instanceof ByteBufferClassReader) {
+			return createLazyAttributes(ctxt);
+		}
 
 		int attributesCount = reader.readUnsignedShort();
-		List<AttributeInfo> attributeInfos = new ArrayList<>(attributesCount);
+		AttributeInfo[] attributeInfos = new AttributeInfo[attributesCount];
+		int[] attributeNameIndexes = new int[attributesCount];
 		for (int i = 0; i < attributesCount; i++) {
-			attributeInfos.add(AttributeInfo.getAttributeInfo(ctxt));
+			AttributeInfo attributeInfo = AttributeInfo.getAttributeInfo(ctxt);
+			attributeInfos[i] = attributeInfo;
+			attributeNameIndexes[i] = attributeInfo.getAttributeNameIndex();
 		}
-		return new Attributes(attributeInfos);
+		return new Attributes(attributeInfos, attributeNameIndexes);
+
+	}
+
+	/**
+	 * Creates {@code Attributes} that only record the name indexes and
+	 * positions of the attributes. The attributes are parsed as they are
+	 * accessed.
+	 */
+	private static Attributes createLazyAttributes(ClassReaderContext ctxt) {
+		ByteBufferClassReader reader = (ByteBufferClassReader) ctxt.getClassReader();
 
+		int attributesCount = reader.readUnsignedShort();
+		int[] attributeNameIndexes = new int[attributesCount];
+		int[] offsets = new int[attributesCount];
+		for (int i = 0; i < attributesCount; i++) {
+			offsets[i] = reader.getPosition();
+			attributeNameIndexes[i] = reader.readUnsignedShort();
+			int attributeLength = reader.readInt();
+			reader.skipBytes(attributeLength);
+		}
+		if (attributesCount == 0) {
+			return new Attributes(new AttributeInfo[0], attributeNameIndexes);
+		}
+		return new Attributes(attributeNameIndexes, offsets, ctxt, reader.getBuffer());
 	}
 
 	@Override
 	public Iterator<AttributeInfo> iterator() {
-		return Iterators.unmodifiableIterator(attributeInfos.iterator());
+		return Iterators.unmodifiableIterator(new AbstractList<AttributeInfo>() {
+
+			@Override
+			public AttributeInfo get(int index) {
+				return resolve(index);
+			}
+
+			@Override
+			public int size() {
+				return attributeInfos.length;
+			}
+
+		}.iterator());
 	}
 
 }
@@ -26,14 +26,16 @@
  */
 package com.github.musikk.classreader.attributes;
 
-import java.io.ByteArrayInputStream;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+import com.github.musikk.classreader.ByteBufferClassReader;
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.ClassReaderContext;
-import com.github.musikk.classreader.ClassReaderImpl;
 import com.github.musikk.classreader.instructions.Instruction;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+import com.github.musikk.classreader.instructions.OpcodeFilter;
+import com.github.musikk.classreader.instructions.PackedInstructions;
 
 public class Code {
 
@@ -41,11 +43,21 @@ public class Code {
 
 	private final byte[] codeBytes;
 	private final SortedMap<Integer, Instruction> instructions = new TreeMap<>();
+	private PackedInstructions packedInstructions;
 
 	private Code(byte[] codeBytes) {
 		this.codeBytes = codeBytes;
 	}
 
+	/**
+	 * Returns the length of the code in bytes.
+	 *
+	 * @return the length in bytes
+	 */
+	public int getLength() {
+		return codeBytes.length;
+	}
+
 	public SortedMap<Integer, Instruction> getInstructions() {
 		if (!instructionsAreParsed) {
 			readInstructions();
@@ -54,9 +66,53 @@ public class Code {
 		return instructions;
 	}
 
+	/**
+	 * Decodes only the instructions whose opcode is contained in the given
+	 * filter. The other instructions are skipped without creating any
+	 * objects. The result is not cached.
+	 *
+	 * @param filter
+	 *            the opcodes of interest
+	 * @return the matching instructions by their offset
+	 */
+	public SortedMap<Integer, Instruction> getInstructions(OpcodeFilter filter) {
+		SortedMap<Integer, Instruction> instructions = new TreeMap<>();
+		ByteBufferClassReader reader = new ByteBufferClassReader(codeBytes, 0, codeBytes.length);
+		InstructionCursor cursor = getInstructionCursor();
+		while (cursor.next(filter)) {
+			reader.setPosition(cursor.offset());
+			instructions.put(cursor.offset(), Instruction.getNextInstruction(reader, cursor.offset()));
+		}
+		return instructions;
+	}
+
+	/**
+	 * Returns the instructions packed into primitive arrays. They take a
+	 * fraction of the memory of {@link #getInstructions()}. The instructions
+	 * are decoded on the first call.
+	 *
+	 * @return the packed instructions
+	 */
+	public PackedInstructions getPackedInstructions() {
+		if (packedInstructions == null) {
+			packedInstructions = PackedInstructions.getPackedInstructions(codeBytes, 0, codeBytes.length);
+		}
+		return packedInstructions;
+	}
+
+	/**
+	 * Returns a new cursor over the instructions. The cursor reads the code in
+	 * place and does not create any objects.
+	 *
+	 * @return a cursor positioned before the first instruction
+	 */
+	public InstructionCursor getInstructionCursor() {
+		return new InstructionCursor(codeBytes, 0, codeBytes.length);
+	}
+
 	private void readInstructions() {
 		int currentByte = 0;
-		ClassReader reader = new ClassReaderImpl(new ByteArrayInputStream(codeBytes));
+		ClassReader reader = new ByteBufferClassReader(codeBytes, 0, codeBytes.length);
 		while (currentByte < codeBytes.length) {
 			Instruction instruction = Instruction.getNextInstruction(reader, currentByte);
 
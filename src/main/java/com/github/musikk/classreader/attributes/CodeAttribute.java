@@ -26,8 +26,12 @@
  */
 package com.github.musikk.classreader.attributes;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.ClassReaderContext;
+import com.github.musikk.classreader.constantpool.ConstantPool;
 
 public class CodeAttribute extends AttributeInfo {
 
@@ -36,14 +40,18 @@ public class CodeAttribute extends AttributeInfo {
 	private final Code code;
 	private final ExceptionTable exceptionTable;
 	private final Attributes attributes;
+	private final ConstantPool constantPool;
+	private ControlFlowGraph controlFlowGraph;
+	private LineNumberIndex lineNumberIndex;
 
 	private CodeAttribute(int maxStack, int maxLocals, Code code,
-			ExceptionTable exceptionTable, Attributes attributes) {
+			ExceptionTable exceptionTable, Attributes attributes, ConstantPool constantPool) {
 		this.maxStack = maxStack;
 		this.maxLocals = maxLocals;
 		this.code = code;
 		this.exceptionTable = exceptionTable;
 		this.attributes = attributes;
+		this.constantPool = constantPool;
 	}
 
 	public int getMaxStack() {
@@ -66,6 +74,37 @@ public class CodeAttribute extends AttributeInfo {
 		return attributes;
 	}
 
+	/**
+	 * Returns the control flow graph of the code. It is built on the first
+	 * call.
+	 *
+	 * @return the control flow graph
+	 */
+	public ControlFlowGraph getControlFlowGraph() {
+		if (controlFlowGraph == null) {
+			controlFlowGraph = ControlFlowGraph.getControlFlowGraph(code, exceptionTable);
+		}
+		return controlFlowGraph;
+	}
+
+	/**
+	 * Returns an index of the line number tables of the code. It is built on
+	 * the first call; attributes other than line number tables are not parsed
+	 * for it.
+	 *
+	 * @return the line number index, empty if there are no line number tables
+	 */
+	public LineNumberIndex getLineNumberIndex() {
+		if (lineNumberIndex == null) {
+			List<LineNumberTableAttribute> lineNumberTables = new ArrayList<>();
+			for (AttributeInfo attributeInfo : attributes.getAttributeInfos(constantPool, AttributeType.LINE_NUMBER_TABLE)) {
+				lineNumberTables.add((LineNumberTableAttribute) attributeInfo);
+			}
+			lineNumberIndex = LineNumberIndex.getLineNumberIndex(lineNumberTables);
+		}
+		return lineNumberIndex;
+	}
+
 	protected static CodeAttribute getCode(ClassReaderContext ctxt) {
 		ClassReader reader = ctxt.getClassReader();
 
@@ -76,7 +115,7 @@ public class CodeAttribute extends AttributeInfo {
 		ExceptionTable exceptionTable = ExceptionTable.getExceptionTable(ctxt);
 		Attributes attributes = Attributes.getAttributes(ctxt);
 
-		return new CodeAttribute(maxStack, maxLocals, code, exceptionTable, attributes);
+		return new CodeAttribute(maxStack, maxLocals, code, exceptionTable, attributes, ctxt.getConstantPool());
 	}
 
 }
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.attributes;
+
+import java.util.Arrays;
+
+import com.github.musikk.classreader.instructions.InstructionCursor;
+import com.github.musikk.classreader.instructions.Opcode;
+
+/**
+ * The control flow graph of a method. The code is split into basic blocks at
+ * branch and switch targets, after branches, switches, returns and
+ * {@code athrow} as well as at the boundaries of the ranges covered by
+ * exception handlers and at the handlers themselves.
+ * <p>
+ * Blocks are numbered in the order of their offsets and stored as offset
+ * ranges in primitive arrays. The successors of all blocks are kept in a
+ * single array (compressed sparse rows); normal successors (fall through,
+ * branches, switches) and exception successors (handlers) are kept apart.
+ * {@code ret} has no successors since its target is not known statically;
+ * {@code jsr} has the subroutine and the following instruction as
+ * successors.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ControlFlowGraph {
+
+	private static final int[] EMPTY = new int[0];
+
+	private final int codeLength;
+
+	/**
+	 * The offsets of the first instruction of every block in ascending order.
+	 */
+	private final int[] blockStarts;
+
+	/**
+	 * The index of the first successor of every block in {@link #successors}
+	 * and one more entry for the end of the last block's successors.
+	 */
+	private final int[] successorStarts;
+	private final int[] successors;
+
+	private final int[] exceptionSuccessorStarts;
+	private final int[] exceptionSuccessors;
+
+	private ControlFlowGraph(int codeLength, int[] blockStarts, int[] successorStarts, int[] successors,
+			int[] exceptionSuccessorStarts, int[] exceptionSuccessors) {
+		this.codeLength = codeLength;
+		this.blockStarts = blockStarts;
+		this.successorStarts = successorStarts;
+		this.successors = successors;
+		this.exceptionSuccessorStarts = exceptionSuccessorStarts;
+		this.exceptionSuccessors = exceptionSuccessors;
+	}
+
+	/**
+	 * Returns the number of basic blocks. Block {@code 0} is the entry block.
+	 *
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return blockStarts.length;
+	}
+
+	/**
+	 * Returns the offset of the first instruction of a block.
+	 *
+	 * @param block
+	 *            the block
+	 * @return the offset from the start of the code
+	 */
+	public int getStartOffset(int block) {
+		return blockStarts[block];
+	}
+
+	/**
+	 * Returns the offset following the last instruction of a block.
+	 *
+	 * @param block
+	 *            the block
+	 * @return the offset from the start of the code (exclusive)
+	 */
+	public int getEndOffset(int block) {
+		return block + 1 < blockStarts.length ? blockStarts[block + 1] : codeLength;
+	}
+
+	/**
+	 * Finds the block containing the given offset.
+	 *
+	 * @param offset
+	 *            the offset from the start of the code
+	 * @return the block or {@code -1} if the offset is outside of the code
+	 */
+	public int getBlockAt(int offset) {
+		if (offset < 0 || offset >= codeLength || blockStarts.length == 0) {
+			return -1;
+		}
+		int i = Arrays.binarySearch(blockStarts, offset);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	public int getSuccessorCount(int block) {
+		return successorStarts[block + 1] - successorStarts[block];
+	}
+
+	/**
+	 * Returns a normal successor of a block, i.e. a block that is reached by
+	 * falling through, branching or switching.
+	 *
+	 * @param block
+	 *            the block
+	 * @param i
+	 *            the position of the successor
+	 * @return the successor
+	 */
+	public int getSuccessor(int block, int i) {
+		if (i < 0 || i >= getSuccessorCount(block)) {
+			throw new IndexOutOfBoundsException("successor " + i + " of block " + block);
+		}
+		return successors[successorStarts[block] + i];
+	}
+
+	public int getExceptionSuccessorCount(int block) {
+		return exceptionSuccessorStarts[block + 1] - exceptionSuccessorStarts[block];
+	}
+
+	/**
+	 * Returns an exception successor of a block, i.e. the first block of a
+	 * handler that covers the block.
+	 *
+	 * @param block
+	 *            the block
+	 * @param i
+	 *            the position of the successor
+	 * @return the successor
+	 */
+	public int getExceptionSuccessor(int block, int i) {
+		if (i < 0 || i >= getExceptionSuccessorCount(block)) {
+			throw new IndexOutOfBoundsException("exception successor " + i + " of block " + block);
+		}
+		return exceptionSuccessors[exceptionSuccessorStarts[block] + i];
+	}
+
+	/**
+	 * Builds the control flow graph of the given code.
+	 *
+	 * @param code
+	 *            the code
+	 * @param exceptionTable
+	 *            the exception table of the code
+	 * @return the control flow graph
+	 */
+	public static ControlFlowGraph getControlFlowGraph(Code code, ExceptionTable exceptionTable) {
+		int codeLength = code.getLength();
+		if (codeLength == 0) {
+			return new ControlFlowGraph(0, EMPTY, new int[1], EMPTY, new int[1], EMPTY);
+		}
+
+		// first pass: find the leaders
+		boolean[] leaders = new boolean[codeLength + 1];
+		leaders[0] = true;
+		int blockCount = 1;
+		InstructionCursor cursor = code.getInstructionCursor();
+		while (cursor.next()) {
+			Opcode opcode = Opcode.getByOpcode(cursor.opcode());
+			int next = cursor.offset() + cursor.length();
+			if (opcode.isBranch()) {
+				blockCount += mark(leaders, cursor.offset() + cursor.operand(0));
+				blockCount += mark(leaders, next);
+			} else if (opcode.isSwitch()) {
+				for (int i = getFirstSwitchTarget(opcode); i < cursor.operandCount(); i += getSwitchTargetStep(opcode)) {
+					blockCount += mark(leaders, cursor.offset() + cursor.operand(i));
+				}
+				blockCount += mark(leaders, cursor.offset() + cursor.operand(0));
+				blockCount += mark(leaders, next);
+			} else if (endsBlock(cursor, opcode)) {
+				blockCount += mark(leaders, next);
+			}
+		}
+		for (ExceptionTableEntry entry : exceptionTable) {
+			blockCount += mark(leaders, entry.getStartPc());
+			blockCount += mark(leaders, entry.getEndPc());
+			blockCount += mark(leaders, entry.getHandlerPc());
+		}
+		if (leaders[codeLength]) {
+			// the end of the code is no block
+			blockCount--;
+		}
+
+		// second pass: create the blocks and their successors
+		int[] blockStarts = new int[blockCount];
+		int[] successorStarts = new int[blockCount + 1];
+		IntBuffer successors = new IntBuffer(blockCount * 2);
+		int[] addedTo = new int[blockCount];
+		Arrays.fill(addedTo, -1);
+
+		int block = -1;
+		cursor = code.getInstructionCursor();
+		while (cursor.next()) {
+			if (leaders[cursor.offset()]) {
+				block++;
+				blockStarts[block] = cursor.offset();
+			}
+		}
+		if (block + 1 != blockCount) {
+			throw new RuntimeException("a branch target or exception table entry does not start an instruction");
+		}
+
+		block = -1;
+		cursor = code.getInstructionCursor();
+		while (cursor.next()) {
+			int offset = cursor.offset();
+			if (leaders[offset]) {
+				block++;
+				successorStarts[block] = successors.size;
+			}
+			int next = offset + cursor.length();
+			if (next < codeLength && !leaders[next]) {
+				continue;
+			}
+
+			// last instruction of the block
+			Opcode opcode = Opcode.getByOpcode(cursor.opcode());
+			if (opcode.isBranch()) {
+				addSuccessor(successors, addedTo, block, getBlock(blockStarts, offset + cursor.operand(0)));
+				if (!opcode.isUnconditionalBranch() || opcode == Opcode.JSR || opcode == Opcode.JSR_W) {
+					addFallThrough(successors, addedTo, block);
+				}
+			} else if (opcode.isSwitch()) {
+				addSuccessor(successors, addedTo, block, getBlock(blockStarts, offset + cursor.operand(0)));
+				for (int i = getFirstSwitchTarget(opcode); i < cursor.operandCount(); i += getSwitchTargetStep(opcode)) {
+					addSuccessor(successors, addedTo, block, getBlock(blockStarts, offset + cursor.operand(i)));
+				}
+			} else if (!endsBlock(cursor, opcode)) {
+				addFallThrough(successors, addedTo, block);
+			}
+		}
+		successorStarts[blockCount] = successors.size;
+
+		// exception successors
+		int[] exceptionSuccessorStarts = new int[blockCount + 1];
+		IntBuffer exceptionSuccessors = new IntBuffer(exceptionTable.getExceptionTableEntries().isEmpty() ? 0
+				: blockCount);
+		Arrays.fill(addedTo, -1);
+		for (block = 0; block < blockCount; block++) {
+			exceptionSuccessorStarts[block] = exceptionSuccessors.size;
+			int start = blockStarts[block];
+			for (ExceptionTableEntry entry : exceptionTable) {
+				if (entry.getStartPc() <= start && start < entry.getEndPc()) {
+					addSuccessor(exceptionSuccessors, addedTo, block, getBlock(blockStarts, entry.getHandlerPc()));
+				}
+			}
+		}
+		exceptionSuccessorStarts[blockCount] = exceptionSuccessors.size;
+
+		return new ControlFlowGraph(codeLength, blockStarts, successorStarts, successors.toArray(),
+				exceptionSuccessorStarts, exceptionSuccessors.toArray());
+	}
+
+	/**
+	 * Marks an offset as the start of a block.
+	 *
+	 * @return {@code 1} if the offset was not marked before, otherwise
+	 *         {@code 0}
+	 */
+	private static int mark(boolean[] leaders, int offset) {
+		if (offset < 0 || offset >= leaders.length) {
+			throw new RuntimeException("offset " + offset + " is outside of the code");
+		}
+		if (leaders[offset]) {
+			return 0;
+		}
+		leaders[offset] = true;
+		return 1;
+	}
+
+	/**
+	 * Checks if the current instruction of the cursor, which is neither a
+	 * branch nor a switch, ends its block without falling through. This
+	 * includes {@code ret} modified by {@code wide}.
+	 */
+	private static boolean endsBlock(InstructionCursor cursor, Opcode opcode) {
+		if (opcode == Opcode.WIDE) {
+			return Opcode.getByOpcode(cursor.operand(0)) == Opcode.RET;
+		}
+		return opcode.isReturn() || opcode == Opcode.ATHROW || opcode == Opcode.RET;
+	}
+
+	/**
+	 * Returns the position of the first jump offset (after the default) in
+	 * the operands of a switch.
+	 */
+	private static int getFirstSwitchTarget(Opcode opcode) {
+		// tableswitch: default, low, high, offset...
+		// lookupswitch: default, npairs, match, offset, ...
+		return 3;
+	}
+
+	/**
+	 * Returns the distance between two jump offsets in the operands of a
+	 * switch.
+	 */
+	private static int getSwitchTargetStep(Opcode opcode) {
+		return opcode == Opcode.TABLESWITCH ? 1 : 2;
+	}
+
+	private static int getBlock(int[] blockStarts, int offset) {
+		int block = Arrays.binarySearch(blockStarts, offset);
+		if (block < 0) {
+			throw new RuntimeException("offset " + offset + " does not start a block");
+		}
+		return block;
+	}
+
+	/**
+	 * Adds the following block as successor. Nothing is added if the block is
+	 * the last one; the verifier rejects such code anyway.
+	 */
+	private static void addFallThrough(IntBuffer successors, int[] addedTo, int block) {
+		if (block + 1 < addedTo.length) {
+			addSuccessor(successors, addedTo, block, block + 1);
+		}
+	}
+
+	/**
+	 * Adds a successor unless it was already added to the block.
+	 */
+	private static void addSuccessor(IntBuffer successors, int[] addedTo, int block, int successor) {
+		if (addedTo[successor] != block) {
+			addedTo[successor] = block;
+			successors.add(successor);
+		}
+	}
+
+	/**
+	 * A growing array of {@code int}s.
+	 */
+	private static class IntBuffer {
+
+		private int[] values;
+		private int size;
+
+		IntBuffer(int capacity) {
+			values = new int[Math.max(capacity, 4)];
+		}
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		int[] toArray() {
+			return size == 0 ? EMPTY : Arrays.copyOf(values, size);
+		}
+
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.attributes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index of the line number tables of a method that maps byte code offsets
+ * to source lines and back in logarithmic time.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class LineNumberIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * The start offsets of all line number table entries in ascending order.
+	 * Entries with the same start offset keep the order of the tables.
+	 */
+	private final int[] startPcs;
+
+	/**
+	 * The line of every entry in {@link #startPcs}.
+	 */
+	private final int[] lines;
+
+	/**
+	 * The lines of all entries in ascending order.
+	 */
+	private final int[] sortedLines;
+
+	/**
+	 * The start offset of every entry in {@link #sortedLines}.
+	 */
+	private final int[] startPcsByLine;
+
+	private LineNumberIndex(int[] startPcs, int[] lines, int[] sortedLines, int[] startPcsByLine) {
+		this.startPcs = startPcs;
+		this.lines = lines;
+		this.sortedLines = sortedLines;
+		this.startPcsByLine = startPcsByLine;
+	}
+
+	/**
+	 * Checks if there are no line numbers, e.g. because the class was compiled
+	 * without debug information.
+	 *
+	 * @return {@code true} if there are no line numbers
+	 */
+	public boolean isEmpty() {
+		return startPcs.length == 0;
+	}
+
+	/**
+	 * Returns the source line of the instruction at the given offset.
+	 *
+	 * @param offset
+	 *            the offset from the start of the code
+	 * @return the line or {@code -1} if it is not known
+	 */
+	public int lineForOffset(int offset) {
+		int i = Arrays.binarySearch(startPcs, offset);
+		if (i < 0) {
+			// an entry starting before the offset
+			i = -i - 2;
+			if (i < 0) {
+				return -1;
+			}
+		}
+		// like the JVM the first of several entries starting at the same offset wins
+		while (i > 0 && startPcs[i - 1] == startPcs[i]) {
+			i--;
+		}
+		return lines[i];
+	}
+
+	/**
+	 * Returns the offsets at which the code of the given source line starts.
+	 * A line can start at several offsets, e.g. for loops.
+	 *
+	 * @param line
+	 *            the source line
+	 * @return the distinct offsets in ascending order; empty if the line is
+	 *         not known
+	 */
+	public int[] offsetsForLine(int line) {
+		int i = Arrays.binarySearch(sortedLines, line);
+		if (i < 0) {
+			return EMPTY;
+		}
+		int from = i;
+		while (from > 0 && sortedLines[from - 1] == line) {
+			from--;
+		}
+		int to = i + 1;
+		while (to < sortedLines.length && sortedLines[to] == line) {
+			to++;
+		}
+		return Arrays.copyOfRange(startPcsByLine, from, to);
+	}
+
+	/**
+	 * Creates an index over the given line number tables. A method may have
+	 * several tables whose entries may be in any order.
+	 *
+	 * @param lineNumberTables
+	 *            the line number tables of a method
+	 * @return the index
+	 */
+	public static LineNumberIndex getLineNumberIndex(List<LineNumberTableAttribute> lineNumberTables) {
+		int size = 0;
+		for (LineNumberTableAttribute lineNumberTable : lineNumberTables) {
+			size += lineNumberTable.getLineNumberTableEntries().size();
+		}
+
+		// pack the sort key and a value into a long to sort without boxing; the
+		// entry index as value keeps entries with the same start offset in order
+		int[] entryLines = new int[size];
+		long[] byStartPc = new long[size];
+		long[] byLine = new long[size];
+		int i = 0;
+		for (LineNumberTableAttribute lineNumberTable : lineNumberTables) {
+			for (LineNumberTableEntry entry : lineNumberTable.getLineNumberTableEntries()) {
+				entryLines[i] = entry.getLineNumber();
+				byStartPc[i] = (long) entry.getStartPc() << 32 | i;
+				byLine[i] = (long) entry.getLineNumber() << 32 | entry.getStartPc();
+				i++;
+			}
+		}
+		Arrays.sort(byStartPc);
+		Arrays.sort(byLine);
+
+		int[] startPcs = new int[size];
+		int[] lines = new int[size];
+		for (i = 0; i < size; i++) {
+			startPcs[i] = (int) (byStartPc[i] >>> 32);
+			lines[i] = entryLines[(int) byStartPc[i]];
+		}
+
+		// an offset is returned once per line even if several tables contain it
+		int distinct = 0;
+		for (i = 0; i < size; i++) {
+			if (i == 0 || byLine[i] != byLine[i - 1]) {
+				byLine[distinct++] = byLine[i];
+			}
+		}
+		int[] sortedLines = new int[distinct];
+		int[] startPcsByLine = new int[distinct];
+		for (i = 0; i < distinct; i++) {
+			sortedLines[i] = (int) (byLine[i] >>> 32);
+			startPcsByLine[i] = (int) byLine[i];
+		}
+		return new LineNumberIndex(startPcs, lines, sortedLines, startPcsByLine);
+	}
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.attributes;
+
+import java.util.Arrays;
+
+import com.github.musikk.classreader.attributes.StackMapFrame.Type;
+import com.github.musikk.classreader.attributes.StackMapFrame.VerificationTypeInfo;
+
+/**
+ * The frames of a {@link StackMapTable} packed into primitive arrays. This is
+ * a compact alternative to the {@link StackMapFrame} objects: a frame takes
+ * its absolute offset, its type and the verification types it lists, but no
+ * objects.
+ * <p>
+ * A verification type is encoded as an {@code int} holding its tag in the
+ * lower four bits and, for {@code Object} and {@code Uninitialized}, the
+ * constant pool index or the offset of the {@code new} instruction in the
+ * upper bits; see {@link #getTag(int)} and {@link #getData(int)}.
+ * <p>
+ * Like the attribute itself, the frames only list what changed since the
+ * previous frame. {@link #getLocals(int, int[])} expands them to the complete
+ * locals of a frame.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class PackedStackMapFrames {
+
+	private static final Type[] TYPES = Type.values();
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * The absolute offsets of the frames from the start of the code.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The ordinals of the {@link Type}s of the frames.
+	 */
+	private final byte[] types;
+
+	/**
+	 * The number of locals chopped by a chop frame, otherwise {@code 0}.
+	 */
+	private final byte[] choppedLocals;
+
+	/**
+	 * The start of the locals of frame {@code i} in {@link #items}. The stack
+	 * of the frame follows its locals and ends at the start of the next frame.
+	 */
+	private final int[] localsStarts;
+
+	private final int[] stackStarts;
+
+	/**
+	 * The encoded verification types of all frames.
+	 */
+	private final int[] items;
+
+	private PackedStackMapFrames(int[] offsets, byte[] types, byte[] choppedLocals, int[] localsStarts,
+			int[] stackStarts, int[] items) {
+		this.offsets = offsets;
+		this.types = types;
+		this.choppedLocals = choppedLocals;
+		this.localsStarts = localsStarts;
+		this.stackStarts = stackStarts;
+		this.items = items;
+	}
+
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * Returns the absolute offset of the frame from the start of the code.
+	 *
+	 * @param frame
+	 *            the position of the frame
+	 * @return the offset
+	 */
+	public int getOffset(int frame) {
+		return offsets[frame];
+	}
+
+	public Type getType(int frame) {
+		return TYPES[types[frame]];
+	}
+
+	/**
+	 * Returns the number of locals a chop frame removes from the locals of the
+	 * previous frame.
+	 *
+	 * @param frame
+	 *            the position of the frame
+	 * @return the number of removed locals, {@code 0} for all other frames
+	 */
+	public int getChoppedLocals(int frame) {
+		return choppedLocals[frame];
+	}
+
+	/**
+	 * Returns the number of locals listed by the frame, i.e. the locals an
+	 * append frame adds or all locals of a full frame.
+	 *
+	 * @param frame
+	 *            the position of the frame
+	 * @return the number of listed locals
+	 */
+	public int getLocalsCount(int frame) {
+		return stackStarts[frame] - localsStarts[frame];
+	}
+
+	public int getLocal(int frame, int i) {
+		return items[localsStarts[frame] + i];
+	}
+
+	public int getStackCount(int frame) {
+		return stackEnd(frame) - stackStarts[frame];
+	}
+
+	public int getStack(int frame, int i) {
+		return items[stackStarts[frame] + i];
+	}
+
+	private int stackEnd(int frame) {
+		return frame + 1 < localsStarts.length ? localsStarts[frame + 1] : items.length;
+	}
+
+	/**
+	 * Returns the complete locals of a frame by applying all frames up to it
+	 * to the locals of the implicit initial frame of the method.
+	 *
+	 * @param frame
+	 *            the position of the frame
+	 * @param initialLocals
+	 *            the encoded locals derived from the descriptor of the method
+	 * @return the encoded locals of the frame
+	 */
+	public int[] getLocals(int frame, int[] initialLocals) {
+		int[] locals = Arrays.copyOf(initialLocals, initialLocals.length + items.length);
+		int size = initialLocals.length;
+		for (int i = 0; i <= frame; i++) {
+			switch (getType(i)) {
+			case CHOP_FRAME:
+				size -= choppedLocals[i];
+				if (size < 0) {
+					throw new RuntimeException("frame " + i + " chops more locals than there are");
+				}
+				break;
+			case APPEND_FRAME:
+				for (int j = localsStarts[i]; j < stackStarts[i]; j++) {
+					locals[size++] = items[j];
+				}
+				break;
+			case FULL_FRAME:
+				size = stackStarts[i] - localsStarts[i];
+				System.arraycopy(items, localsStarts[i], locals, 0, size);
+				break;
+			default:
+				break;
+			}
+		}
+		return size == 0 ? EMPTY : Arrays.copyOf(locals, size);
+	}
+
+	/**
+	 * Returns the index of the frame at the given offset.
+	 *
+	 * @param offset
+	 *            the offset from the start of the code
+	 * @return the position of the frame or {@code -1} if there is no frame at
+	 *         the offset
+	 */
+	public int indexOf(int offset) {
+		int i = Arrays.binarySearch(offsets, offset);
+		return i >= 0 ? i : -1;
+	}
+
+	/**
+	 * Returns the tag of an encoded verification type, e.g.
+	 * {@link VerificationTypeInfo#OBJECT}.
+	 *
+	 * @param verificationType
+	 *            the encoded verification type
+	 * @return the tag
+	 */
+	public static int getTag(int verificationType) {
+		return verificationType & 0xf;
+	}
+
+	/**
+	 * Returns the constant pool index of an {@code Object} or the offset of
+	 * the {@code new} instruction of an {@code Uninitialized} verification
+	 * type.
+	 *
+	 * @param verificationType
+	 *            the encoded verification type
+	 * @return the constant pool index or offset, {@code 0} for all other
+	 *         verification types
+	 */
+	public static int getData(int verificationType) {
+		return verificationType >>> 4;
+	}
+
+	/**
+	 * Encodes a verification type.
+	 *
+	 * @param tag
+	 *            the tag
+	 * @param data
+	 *            the constant pool index or offset, {@code 0} if the tag has
+	 *            none
+	 * @return the encoded verification type
+	 */
+	public static int encode(int tag, int data) {
+		return data << 4 | tag;
+	}
+
+	/**
+	 * Decodes the frames of a stack map table.
+	 *
+	 * @param table
+	 *            the bytes of the table following {@code number_of_entries}
+	 * @param numberOfEntries
+	 *            the number of frames
+	 * @return the packed frames
+	 */
+	static PackedStackMapFrames getPackedStackMapFrames(byte[] table, int numberOfEntries) {
+		int[] offsets = new int[numberOfEntries];
+		byte[] types = new byte[numberOfEntries];
+		byte[] choppedLocals = new byte[numberOfEntries];
+		int[] localsStarts = new int[numberOfEntries];
+		int[] stackStarts = new int[numberOfEntries];
+		// every verification type takes at least one byte
+		int[] items = new int[table.length];
+		int itemCount = 0;
+
+		int pos = 0;
+		int offset = -1;
+		for (int i = 0; i < numberOfEntries; i++) {
+			int frameType = table[pos++] & 0xff;
+			Type type = Type.getTypeFromFrameType(frameType);
+			int offsetDelta;
+			if (frameType < 128) {
+				offsetDelta = frameType & 63;
+			} else {
+				offsetDelta = readUnsignedShort(table, pos);
+				pos += 2;
+			}
+			offset += offsetDelta + 1;
+			offsets[i] = offset;
+			types[i] = (byte) type.ordinal();
+			localsStarts[i] = itemCount;
+
+			switch (type) {
+			case CHOP_FRAME:
+				choppedLocals[i] = (byte) (251 - frameType);
+				break;
+			case APPEND_FRAME:
+				for (int j = frameType - 251; j > 0; j--) {
+					pos = readVerificationType(table, pos, items, itemCount++);
+				}
+				break;
+			case FULL_FRAME:
+				int numLocals = readUnsignedShort(table, pos);
+				pos += 2;
+				for (int j = 0; j < numLocals; j++) {
+					pos = readVerificationType(table, pos, items, itemCount++);
+				}
+				break;
+			default:
+				break;
+			}
+
+			stackStarts[i] = itemCount;
+			switch (type) {
+			case SAME_LOCALS_1_STACK_ITEM_FRAME:
+			case SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED:
+				pos = readVerificationType(table, pos, items, itemCount++);
+				break;
+			case FULL_FRAME:
+				int numStackItems = readUnsignedShort(table, pos);
+				pos += 2;
+				for (int j = 0; j < numStackItems; j++) {
+					pos = readVerificationType(table, pos, items, itemCount++);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		return new PackedStackMapFrames(offsets, types, choppedLocals, localsStarts, stackStarts,
+				itemCount == items.length ? items : Arrays.copyOf(items, itemCount));
+	}
+
+	private static int readVerificationType(byte[] table, int pos, int[] items, int item) {
+		int tag = table[pos++] & 0xff;
+		if (tag == VerificationTypeInfo.OBJECT || tag == VerificationTypeInfo.UNINITIALIZED) {
+			items[item] = encode(tag, readUnsignedShort(table, pos));
+			return pos + 2;
+		}
+		if (tag > VerificationTypeInfo.UNINITIALIZED) {
+			throw new IllegalArgumentException("Unknown tag " + tag + ".");
+		}
+		items[item] = tag;
+		return pos;
+	}
+
+	private static int readUnsignedShort(byte[] table, int pos) {
+		return (table[pos] & 0xff) << 8 | table[pos + 1] & 0xff;
+	}
+
+}
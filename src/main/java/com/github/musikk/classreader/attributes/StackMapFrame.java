@@ -188,6 +188,16 @@ public abstract class StackMapFrame {
 	}
 
 	public abstract static class VerificationTypeInfo {
+		public static final int TOP = 0;
+		public static final int INTEGER = 1;
+		public static final int FLOAT = 2;
+		public static final int DOUBLE = 3;
+		public static final int LONG = 4;
+		public static final int NULL = 5;
+		public static final int UNINITIALIZED_THIS = 6;
+		public static final int OBJECT = 7;
+		public static final int UNINITIALIZED = 8;
+
 		private final int tag;
 		public VerificationTypeInfo(int tag) {
 			this.tag = tag;
@@ -198,24 +208,45 @@ public abstract class StackMapFrame {
 		static VerificationTypeInfo getVerificationTypeInfo(ClassReader reader) {
 			int tag = reader.readUnsignedByte();
 			switch (tag) {
-			case 0:
-				return new TopVariableInfo(tag);
-			case 1:
-				return new IntegerVariableInfo(tag);
-			case 2:
-				return new FloatVariableInfo(tag);
-			case 3:
-				return new DoubleVariableInfo(tag);
-			case 4:
-				return new LongVariableInfo(tag);
-			case 5:
-				return new NullVariableInfo(tag);
-			case 6:
-				return new UninitializedThisVariableInfo(tag);
-			case 7:
-				return new ObjectVariableInfo(tag, reader.readUnsignedShort());
-			case 8:
-				return new UninitializedVariableInfo(tag, reader.readUnsignedShort());
+			case OBJECT:
+			case UNINITIALIZED:
+				return getVerificationTypeInfo(tag, reader.readUnsignedShort());
+			default:
+				return getVerificationTypeInfo(tag, 0);
+			}
+		}
+		/**
+		 * Returns the verification type encoded by {@link PackedStackMapFrames}.
+		 * The verification types without data are shared instances.
+		 *
+		 * @param verificationType
+		 *            the encoded verification type
+		 * @return the verification type
+		 */
+		public static VerificationTypeInfo getVerificationTypeInfo(int verificationType) {
+			return getVerificationTypeInfo(PackedStackMapFrames.getTag(verificationType),
+					PackedStackMapFrames.getData(verificationType));
+		}
+		private static VerificationTypeInfo getVerificationTypeInfo(int tag, int data) {
+			switch (tag) {
+			case TOP:
+				return TopVariableInfo.INSTANCE;
+			case INTEGER:
+				return IntegerVariableInfo.INSTANCE;
+			case FLOAT:
+				return FloatVariableInfo.INSTANCE;
+			case DOUBLE:
+				return DoubleVariableInfo.INSTANCE;
+			case LONG:
+				return LongVariableInfo.INSTANCE;
+			case NULL:
+				return NullVariableInfo.INSTANCE;
+			case UNINITIALIZED_THIS:
+				return UninitializedThisVariableInfo.INSTANCE;
+			case OBJECT:
+				return new ObjectVariableInfo(tag, data);
+			case UNINITIALIZED:
+				return new UninitializedVariableInfo(tag, data);
 			default:
 				throw new IllegalArgumentException("Unknown tag " + tag + ".");
 			}
@@ -223,42 +254,49 @@ public abstract class StackMapFrame {
 	}
 
 	public static class TopVariableInfo extends VerificationTypeInfo {
+		public static final TopVariableInfo INSTANCE = new TopVariableInfo(TOP);
 		public TopVariableInfo(int tag) {
 			super(tag);
 		}
 	}
 
 	public static class IntegerVariableInfo extends VerificationTypeInfo {
+		public static final IntegerVariableInfo INSTANCE = new IntegerVariableInfo(INTEGER);
 		public IntegerVariableInfo(int tag) {
 			super(tag);
 		}
 	}
 
 	public static class FloatVariableInfo extends VerificationTypeInfo {
+		public static final FloatVariableInfo INSTANCE = new FloatVariableInfo(FLOAT);
 		public FloatVariableInfo(int tag) {
 			super(tag);
 		}
 	}
 
 	public static class LongVariableInfo extends VerificationTypeInfo {
+		public static final LongVariableInfo INSTANCE = new LongVariableInfo(LONG);
 		public LongVariableInfo(int tag) {
 			super(tag);
 		}
 	}
 
 	public static class DoubleVariableInfo extends VerificationTypeInfo {
+		public static final DoubleVariableInfo INSTANCE = new DoubleVariableInfo(DOUBLE);
 		public DoubleVariableInfo(int tag) {
 			super(tag);
 		}
 	}
 
 	public static class NullVariableInfo extends VerificationTypeInfo {
+		public static final NullVariableInfo INSTANCE = new NullVariableInfo(NULL);
 		public NullVariableInfo(int tag) {
 			super(tag);
 		}
 	}
 
 	public static class UninitializedThisVariableInfo extends VerificationTypeInfo {
+		public static final UninitializedThisVariableInfo INSTANCE = new UninitializedThisVariableInfo(UNINITIALIZED_THIS);
 		public UninitializedThisVariableInfo(int tag) {
 			super(tag);
 		}
@@ -307,13 +345,22 @@ public abstract class StackMapFrame {
 			this(frameType, frameType);
 		}
 
-		static Type getTypeFromFrameType(int frameType) {
+		private static final Type[] BY_FRAME_TYPE = new Type[256];
+
+		static {
 			for (Type t : values()) {
-				if (frameType >= t.frameTypeMin && frameType <= t.frameTypeMax) {
-					return t;
+				for (int frameType = t.frameTypeMin; frameType <= t.frameTypeMax; frameType++) {
+					BY_FRAME_TYPE[frameType] = t;
 				}
 			}
-			throw new IllegalArgumentException("No stack map frame for frame type " + frameType + " found.");
+		}
+
+		static Type getTypeFromFrameType(int frameType) {
+			Type type = frameType >= 0 && frameType < BY_FRAME_TYPE.length ? BY_FRAME_TYPE[frameType] : null;
+			if (type == null) {
+				throw new IllegalArgumentException("No stack map frame for frame type " + frameType + " found.");
+			}
+			return type;
 		}
 
 		StackMapFrame create(ClassReader reader, int frameType) {
@@ -26,15 +26,14 @@
  */
 package com.github.musikk.classreader.attributes;
 
-import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import com.github.musikk.classreader.ByteBufferClassReader;
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.ClassReaderContext;
-import com.github.musikk.classreader.ClassReaderImpl;
 import com.google.common.collect.Iterators;
 
 public class StackMapTable extends AttributeInfo implements Iterable<StackMapFrame> {
@@ -44,6 +43,7 @@ public class StackMapTable extends AttributeInfo implements Iterable<StackMapFra
 	private final int numberOfEntries;
 
 	private final List<StackMapFrame> entries;
+	private PackedStackMapFrames packedFrames;
 
 	public StackMapTable(byte[] tableBytes, int numberOfEntries) {
 		this.tableBytes = tableBytes;
@@ -56,9 +56,23 @@ public class StackMapTable extends AttributeInfo implements Iterable<StackMapFra
 		return Collections.unmodifiableList(entries);
 	}
 
+	/**
+	 * Returns the frames packed into primitive arrays with absolute offsets.
+	 * They take a fraction of the memory of {@link #getEntries()}. The frames
+	 * are decoded on the first call.
+	 *
+	 * @return the packed frames
+	 */
+	public PackedStackMapFrames getPackedFrames() {
+		if (packedFrames == null) {
+			packedFrames = PackedStackMapFrames.getPackedStackMapFrames(tableBytes, numberOfEntries);
+		}
+		return packedFrames;
+	}
+
 	private void ensureParsedEntries() {
 		if (!entriesAreParsed) {
-			ClassReader reader = new ClassReaderImpl(new ByteArrayInputStream(tableBytes));
+			ClassReader reader = new ByteBufferClassReader(tableBytes, 0, tableBytes.length);
 			// constant pool is not actually required...
 			for (int i = 0; i < numberOfEntries; i++) {
 				entries.add(StackMapFrame.getStackMapFrame(reader));
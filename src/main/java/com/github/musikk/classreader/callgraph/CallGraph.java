@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.callgraph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import com.github.musikk.classreader.ClassFileCollection;
+import com.github.musikk.classreader.EagerClassFileJar;
+import com.github.musikk.classreader.constantpool.MethodReference;
+
+/**
+ * The call graph of all classes of a {@link ClassFileCollection}.
+ * <p>
+ * Every method is a node identified by an {@code int} id. The methods declared
+ * by the classes of the collection come first, ordered by class name and
+ * declaration; they are followed by the methods of classes outside of the
+ * collection that are called, ordered by owner, name and descriptor. The
+ * edges are stored in primitive adjacency arrays in both directions.
+ * <p>
+ * Virtual calls ({@code invokevirtual}, {@code invokeinterface}) are resolved
+ * by class hierarchy analysis: a call has an edge to the implementation every
+ * non-abstract subclass of the referenced class would dispatch to. Calls that
+ * resolve to a class outside of the collection get an edge to that external
+ * method. An {@code invokedynamic} call site gets edges to its bootstrap
+ * method and to the methods passed to it as method handles, e.g. the
+ * implementation of a lambda.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class CallGraph {
+
+	private final MethodReference[] methods;
+	private final int declaredMethodCount;
+
+	private final int[] calleeStarts;
+	private final int[] callees;
+	private final int[] callerStarts;
+	private final int[] callers;
+
+	/**
+	 * The ids of the methods; created on the first lookup.
+	 */
+	private volatile Map<MethodReference, Integer> methodIds;
+
+	CallGraph(MethodReference[] methods, int declaredMethodCount, int[] calleeStarts, int[] callees,
+			int[] callerStarts, int[] callers) {
+		this.methods = methods;
+		this.declaredMethodCount = declaredMethodCount;
+		this.calleeStarts = calleeStarts;
+		this.callees = callees;
+		this.callerStarts = callerStarts;
+		this.callers = callers;
+	}
+
+	/**
+	 * Returns the number of methods, i.e. the ids range from {@code 0} to
+	 * {@code getMethodCount() - 1}.
+	 *
+	 * @return the number of methods
+	 */
+	public int getMethodCount() {
+		return methods.length;
+	}
+
+	/**
+	 * Returns the number of methods declared by the classes of the collection.
+	 * Their ids range from {@code 0} to {@code getDeclaredMethodCount() - 1}.
+	 *
+	 * @return the number of declared methods
+	 */
+	public int getDeclaredMethodCount() {
+		return declaredMethodCount;
+	}
+
+	/**
+	 * Checks if the method is declared by a class of the collection.
+	 *
+	 * @param method
+	 *            the id of the method
+	 * @return {@code true} if the method is declared in the collection,
+	 *         {@code false} if it is external
+	 */
+	public boolean isDeclared(int method) {
+		return method < declaredMethodCount;
+	}
+
+	/**
+	 * Returns the method with the given id. The owner is an internal class
+	 * name, e.g. {@code java/lang/Object}.
+	 *
+	 * @param method
+	 *            the id of the method
+	 * @return the method
+	 */
+	public MethodReference getMethod(int method) {
+		return methods[method];
+	}
+
+	/**
+	 * Returns the id of the given method.
+	 *
+	 * @param method
+	 *            the method with an internal class name as owner
+	 * @return the id or {@code -1} if the method is neither declared nor
+	 *         called
+	 */
+	public int getMethodId(MethodReference method) {
+		Map<MethodReference, Integer> methodIds = this.methodIds;
+		if (methodIds == null) {
+			methodIds = new HashMap<>(methods.length * 4 / 3 + 1);
+			for (int i = 0; i < methods.length; i++) {
+				methodIds.put(methods[i], i);
+			}
+			this.methodIds = methodIds;
+		}
+		Integer id = methodIds.get(method);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * Returns the number of edges.
+	 *
+	 * @return the number of edges
+	 */
+	public int getEdgeCount() {
+		return callees.length;
+	}
+
+	/**
+	 * Returns the number of distinct methods the given method calls.
+	 *
+	 * @param method
+	 *            the id of the calling method
+	 * @return the number of callees, {@code 0} for external methods
+	 */
+	public int getCalleeCount(int method) {
+		return calleeStarts[method + 1] - calleeStarts[method];
+	}
+
+	/**
+	 * Returns a method called by the given method. The callees of a method are
+	 * ordered by id.
+	 *
+	 * @param method
+	 *            the id of the calling method
+	 * @param i
+	 *            the index of the callee, less than
+	 *            {@link #getCalleeCount(int)}
+	 * @return the id of the callee
+	 */
+	public int getCallee(int method, int i) {
+		return callees[calleeStarts[method] + i];
+	}
+
+	/**
+	 * Returns the number of distinct methods calling the given method.
+	 *
+	 * @param method
+	 *            the id of the called method
+	 * @return the number of callers
+	 */
+	public int getCallerCount(int method) {
+		return callerStarts[method + 1] - callerStarts[method];
+	}
+
+	/**
+	 * Returns a method calling the given method. The callers of a method are
+	 * ordered by id.
+	 *
+	 * @param method
+	 *            the id of the called method
+	 * @param i
+	 *            the index of the caller, less than
+	 *            {@link #getCallerCount(int)}
+	 * @return the id of the caller
+	 */
+	public int getCaller(int method, int i) {
+		return callers[callerStarts[method] + i];
+	}
+
+	/**
+	 * Builds the call graph of all classes of the given collection, parsing
+	 * and resolving the classes in parallel on the shared
+	 * {@linkplain EagerClassFileJar#getDefaultExecutor() default executor}.
+	 *
+	 * @param classFiles
+	 *            the classes; {@link ClassFileCollection#getClassNames()}
+	 *            must be supported
+	 * @return the call graph
+	 */
+	public static CallGraph getCallGraph(ClassFileCollection classFiles) {
+		return getCallGraph(classFiles, EagerClassFileJar.getDefaultExecutor());
+	}
+
+	/**
+	 * Builds the call graph of all classes of the given collection, parsing
+	 * and resolving the classes on the given {@link ExecutorService}. This
+	 * method blocks until the graph is built. The {@code ExecutorService} is
+	 * not shut down.
+	 *
+	 * @param classFiles
+	 *            the classes; {@link ClassFileCollection#getClassNames()}
+	 *            must be supported and {@link ClassFileCollection#getClassFile(String)}
+	 *            must be thread safe
+	 * @param executor
+	 *            the {@code ExecutorService}
+	 * @return the call graph
+	 */
+	public static CallGraph getCallGraph(ClassFileCollection classFiles, ExecutorService executor) {
+		return new CallGraphBuilder(classFiles, executor).build();
+	}
+
+}
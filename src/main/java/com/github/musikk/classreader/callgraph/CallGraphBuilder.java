@@ -0,0 +1,743 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.callgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.ClassFileCollection;
+import com.github.musikk.classreader.attributes.AttributeType;
+import com.github.musikk.classreader.attributes.BootstrapMethods;
+import com.github.musikk.classreader.attributes.CodeAttribute;
+import com.github.musikk.classreader.constantpool.ConstantPool;
+import com.github.musikk.classreader.constantpool.ConstantPoolInfoType;
+import com.github.musikk.classreader.constantpool.MethodHandleInfo;
+import com.github.musikk.classreader.constantpool.MethodReference;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+import com.github.musikk.classreader.instructions.Opcode;
+import com.github.musikk.classreader.instructions.OpcodeFilter;
+import com.github.musikk.classreader.methods.MethodInfo;
+
+/**
+ * Builds a {@link CallGraph} in four phases:
+ * <ol>
+ * <li>parse every class and record its type hierarchy, its methods and their
+ * call sites (parallel),</li>
+ * <li>assign the ids of the declared methods and index the type hierarchy,</li>
+ * <li>resolve the call sites of every class to method ids (parallel),</li>
+ * <li>number the external methods and store the edges in adjacency
+ * arrays.</li>
+ * </ol>
+ *
+ * @author Werner Hahn
+ *
+ */
+class CallGraphBuilder {
+
+	private static final int CLASSES_PER_TASK = 256;
+
+	private static final byte STATIC = 0;
+	private static final byte SPECIAL = 1;
+	private static final byte VIRTUAL = 2;
+
+	private static final int[] EMPTY = new int[0];
+
+	private final ClassFileCollection classFiles;
+	private final ExecutorService executor;
+
+	/**
+	 * The parsed classes ordered by name, {@code null} for classes that could
+	 * not be found or are shadowed by a class of the same name.
+	 */
+	private ClassNode[] classNodes;
+
+	private Map<String, ClassNode> classNodesByName;
+
+	/**
+	 * Maps class names, including those of external classes, to the classes
+	 * of the collection directly extending or implementing them.
+	 */
+	private Map<String, List<ClassNode>> directSubtypes;
+
+	private int declaredMethodCount;
+
+	/**
+	 * Whether a declared method is abstract, indexed by id.
+	 */
+	private boolean[] abstractMethods;
+
+	/**
+	 * The ids of external methods are assigned by concurrent tasks in an
+	 * arbitrary order and replaced by ordered ids in the last phase.
+	 */
+	private final ConcurrentMap<MethodReference, Integer> externalIds = new ConcurrentHashMap<>();
+	private final AtomicInteger externalCount = new AtomicInteger();
+
+	private final ConcurrentMap<MethodReference, Integer> resolvedMethods = new ConcurrentHashMap<>();
+	private final ConcurrentMap<MethodReference, int[]> virtualTargets = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, ClassNode[]> concreteSubtypes = new ConcurrentHashMap<>();
+
+	CallGraphBuilder(ClassFileCollection classFiles, ExecutorService executor) {
+		this.classFiles = classFiles;
+		this.executor = executor;
+	}
+
+	CallGraph build() {
+		List<String> classNames = new ArrayList<>(classFiles.getClassNames());
+		Collections.sort(classNames);
+
+		parseClasses(classNames);
+		indexClasses();
+		resolveCalls();
+		return createCallGraph();
+	}
+
+	private void parseClasses(final List<String> classNames) {
+		classNodes = new ClassNode[classNames.size()];
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i = 0; i < classNames.size(); i += CLASSES_PER_TASK) {
+			final int from = i;
+			final int to = Math.min(i + CLASSES_PER_TASK, classNames.size());
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int j = from; j < to; j++) {
+						ClassFile classFile = classFiles.getClassFile(classNames.get(j));
+						if (classFile != null) {
+							classNodes[j] = new ClassNode(classFile);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		runAll(tasks);
+	}
+
+	private void indexClasses() {
+		classNodesByName = new HashMap<>(classNodes.length * 4 / 3 + 1);
+		directSubtypes = new HashMap<>();
+		int methodCount = 0;
+		for (int i = 0; i < classNodes.length; i++) {
+			ClassNode classNode = classNodes[i];
+			if (classNode == null) {
+				continue;
+			}
+			if (classNodesByName.containsKey(classNode.name)) {
+				classNodes[i] = null;
+				continue;
+			}
+			classNodesByName.put(classNode.name, classNode);
+			classNode.firstMethodId = methodCount;
+			methodCount += classNode.methodNames.length;
+
+			if (classNode.superName != null) {
+				addDirectSubtype(classNode.superName, classNode);
+			}
+			for (String interfaceName : classNode.interfaceNames) {
+				addDirectSubtype(interfaceName, classNode);
+			}
+		}
+
+		declaredMethodCount = methodCount;
+		abstractMethods = new boolean[methodCount];
+		for (ClassNode classNode : classNodes) {
+			if (classNode != null) {
+				for (int i = 0; i < classNode.methodNames.length; i++) {
+					abstractMethods[classNode.firstMethodId + i] = classNode.isAbstract(i);
+				}
+			}
+		}
+	}
+
+	private void addDirectSubtype(String typeName, ClassNode subtype) {
+		List<ClassNode> subtypes = directSubtypes.get(typeName);
+		if (subtypes == null) {
+			subtypes = new ArrayList<>(2);
+			directSubtypes.put(typeName, subtypes);
+		}
+		subtypes.add(subtype);
+	}
+
+	private void resolveCalls() {
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int i = 0; i < classNodes.length; i += CLASSES_PER_TASK) {
+			final int from = i;
+			final int to = Math.min(i + CLASSES_PER_TASK, classNodes.length);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					IntList targets = new IntList();
+					for (int j = from; j < to; j++) {
+						if (classNodes[j] != null) {
+							resolveCalls(classNodes[j], targets);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		runAll(tasks);
+	}
+
+	private void resolveCalls(ClassNode classNode, IntList targets) {
+		int methodCount = classNode.methodNames.length;
+		classNode.callees = new int[methodCount][];
+		for (int i = 0; i < methodCount; i++) {
+			byte[] kinds = classNode.callKinds[i];
+			MethodReference[] references = classNode.callReferences[i];
+			targets.clear();
+			for (int j = 0; j < kinds.length; j++) {
+				if (kinds[j] == VIRTUAL) {
+					targets.addAll(getVirtualTargets(references[j]));
+				} else {
+					int target = resolve(references[j]);
+					if (target >= 0) {
+						targets.add(target);
+					}
+				}
+			}
+			classNode.callees[i] = targets.toSortedSet();
+		}
+		// the call sites are no longer needed
+		classNode.callKinds = null;
+		classNode.callReferences = null;
+	}
+
+	/**
+	 * Resolves a method reference like the JVM, i.e. the method is looked up
+	 * in the referenced class, its super classes and its super interfaces.
+	 *
+	 * @return the id of the method
+	 */
+	private int resolve(MethodReference reference) {
+		Integer id = resolvedMethods.get(reference);
+		if (id == null) {
+			id = lookup(reference.getOwner(), reference, false);
+			if (id < 0) {
+				// the method is missing, e.g. because of a changed dependency
+				id = getExternalId(reference);
+			}
+			resolvedMethods.putIfAbsent(reference, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the possible targets of a virtual call according to the class
+	 * hierarchy.
+	 */
+	private int[] getVirtualTargets(MethodReference reference) {
+		int[] targets = virtualTargets.get(reference);
+		if (targets == null) {
+			IntList targetList = new IntList();
+			int resolved = resolve(reference);
+			if (resolved >= declaredMethodCount || !abstractMethods[resolved]) {
+				targetList.add(resolved);
+			}
+			for (ClassNode subtype : getConcreteSubtypes(reference.getOwner())) {
+				int target = lookup(subtype.name, reference, true);
+				if (target >= 0) {
+					targetList.add(target);
+				}
+			}
+			targets = targetList.toSortedSet();
+			virtualTargets.putIfAbsent(reference, targets);
+		}
+		return targets;
+	}
+
+	/**
+	 * Looks up a method starting at the given class. The super classes are
+	 * searched before the super interfaces.
+	 *
+	 * @param className
+	 *            the class to start at
+	 * @param reference
+	 *            the name and descriptor of the method
+	 * @param dispatch
+	 *            {@code true} to look up the implementation a virtual call
+	 *            dispatches to: static, private and abstract methods are
+	 *            ignored
+	 * @return the id of the method or {@code -1} if there is no such method
+	 */
+	private int lookup(String className, MethodReference reference, boolean dispatch) {
+		String name = reference.getName();
+		String descriptor = reference.getDescriptor();
+
+		List<ClassNode> superClasses = new ArrayList<>(4);
+		String externalClassName = null;
+		for (String superName = className; superName != null;) {
+			ClassNode classNode = classNodesByName.get(superName);
+			if (classNode == null) {
+				externalClassName = superName;
+				break;
+			}
+			int i = classNode.indexOf(name, descriptor);
+			if (i >= 0 && !(dispatch && (classNode.isStatic(i) || classNode.isPrivate(i) || classNode.isAbstract(i)))) {
+				return classNode.firstMethodId + i;
+			}
+			superClasses.add(classNode);
+			superName = classNode.superName;
+		}
+
+		// interface methods, searched breadth first
+		Deque<String> interfaceNames = new ArrayDeque<>();
+		for (ClassNode classNode : superClasses) {
+			interfaceNames.addAll(Arrays.asList(classNode.interfaceNames));
+		}
+		Set<String> visited = new HashSet<>();
+		int abstractMethod = -1;
+		while (!interfaceNames.isEmpty()) {
+			String interfaceName = interfaceNames.poll();
+			ClassNode classNode = classNodesByName.get(interfaceName);
+			if (classNode == null || !visited.add(interfaceName)) {
+				continue;
+			}
+			int i = classNode.indexOf(name, descriptor);
+			if (i >= 0 && !classNode.isStatic(i) && !classNode.isPrivate(i)) {
+				if (!classNode.isAbstract(i)) {
+					return classNode.firstMethodId + i;
+				} else if (abstractMethod < 0) {
+					abstractMethod = classNode.firstMethodId + i;
+				}
+			}
+			interfaceNames.addAll(Arrays.asList(classNode.interfaceNames));
+		}
+
+		if (!dispatch && abstractMethod >= 0) {
+			return abstractMethod;
+		}
+		// a method of the collection takes precedence over the external super
+		// class, which is java/lang/Object for every interface
+		if (externalClassName != null) {
+			return getExternalId(new MethodReference(externalClassName, name, descriptor));
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns all classes of the collection that extend or implement the
+	 * given type, including the type itself, and can be instantiated.
+	 */
+	private ClassNode[] getConcreteSubtypes(String typeName) {
+		ClassNode[] subtypes = concreteSubtypes.get(typeName);
+		if (subtypes == null) {
+			List<ClassNode> subtypeList = new ArrayList<>();
+			Set<ClassNode> visited = Collections.newSetFromMap(new IdentityHashMap<ClassNode, Boolean>());
+			Deque<String> typeNames = new ArrayDeque<>();
+			typeNames.add(typeName);
+			ClassNode type = classNodesByName.get(typeName);
+			if (type != null && type.isConcrete()) {
+				subtypeList.add(type);
+			}
+			while (!typeNames.isEmpty()) {
+				List<ClassNode> directSubtypeList = directSubtypes.get(typeNames.poll());
+				if (directSubtypeList == null) {
+					continue;
+				}
+				for (ClassNode subtype : directSubtypeList) {
+					if (visited.add(subtype)) {
+						if (subtype.isConcrete()) {
+							subtypeList.add(subtype);
+						}
+						typeNames.add(subtype.name);
+					}
+				}
+			}
+			subtypes = subtypeList.toArray(new ClassNode[subtypeList.size()]);
+			concreteSubtypes.putIfAbsent(typeName, subtypes);
+		}
+		return subtypes;
+	}
+
+	private int getExternalId(MethodReference reference) {
+		Integer id = externalIds.get(reference);
+		if (id == null) {
+			Integer newId = declaredMethodCount + externalCount.getAndIncrement();
+			id = externalIds.putIfAbsent(reference, newId);
+			if (id == null) {
+				id = newId;
+			}
+		}
+		return id;
+	}
+
+	private CallGraph createCallGraph() {
+		// number the external methods in order
+		MethodReference[] externals = externalIds.keySet().toArray(new MethodReference[externalIds.size()]);
+		Arrays.sort(externals, new Comparator<MethodReference>() {
+			@Override
+			public int compare(MethodReference o1, MethodReference o2) {
+				int result = o1.getOwner().compareTo(o2.getOwner());
+				if (result == 0) {
+					result = o1.getName().compareTo(o2.getName());
+				}
+				if (result == 0) {
+					result = o1.getDescriptor().compareTo(o2.getDescriptor());
+				}
+				return result;
+			}
+		});
+		int[] externalMapping = new int[externalCount.get()];
+		for (int i = 0; i < externals.length; i++) {
+			externalMapping[externalIds.get(externals[i]) - declaredMethodCount] = declaredMethodCount + i;
+		}
+
+		int methodCount = declaredMethodCount + externals.length;
+		MethodReference[] methods = new MethodReference[methodCount];
+		System.arraycopy(externals, 0, methods, declaredMethodCount, externals.length);
+
+		int[] calleeStarts = new int[methodCount + 1];
+		int edgeCount = 0;
+		for (ClassNode classNode : classNodes) {
+			if (classNode == null) {
+				continue;
+			}
+			for (int i = 0; i < classNode.methodNames.length; i++) {
+				int method = classNode.firstMethodId + i;
+				methods[method] = new MethodReference(classNode.name, classNode.methodNames[i],
+						classNode.methodDescriptors[i]);
+				calleeStarts[method] = edgeCount;
+				edgeCount += classNode.callees[i].length;
+			}
+		}
+		for (int method = declaredMethodCount; method <= methodCount; method++) {
+			calleeStarts[method] = edgeCount;
+		}
+
+		int[] callees = new int[edgeCount];
+		int[] callerStarts = new int[methodCount + 1];
+		for (ClassNode classNode : classNodes) {
+			if (classNode == null) {
+				continue;
+			}
+			for (int i = 0; i < classNode.methodNames.length; i++) {
+				int start = calleeStarts[classNode.firstMethodId + i];
+				int[] methodCallees = classNode.callees[i];
+				boolean external = false;
+				for (int j = 0; j < methodCallees.length; j++) {
+					int callee = methodCallees[j];
+					if (callee >= declaredMethodCount) {
+						callee = externalMapping[callee - declaredMethodCount];
+						external = true;
+					}
+					callees[start + j] = callee;
+					callerStarts[callee + 1]++;
+				}
+				if (external) {
+					Arrays.sort(callees, start, start + methodCallees.length);
+				}
+			}
+			classNode.callees = null;
+		}
+
+		// the callers are added in the order of their ids
+		for (int method = 0; method < methodCount; method++) {
+			callerStarts[method + 1] += callerStarts[method];
+		}
+		int[] callers = new int[edgeCount];
+		int[] callerCounts = new int[methodCount];
+		for (int method = 0; method < declaredMethodCount; method++) {
+			for (int i = calleeStarts[method]; i < calleeStarts[method + 1]; i++) {
+				int callee = callees[i];
+				callers[callerStarts[callee] + callerCounts[callee]++] = method;
+			}
+		}
+
+		return new CallGraph(methods, declaredMethodCount, calleeStarts, callees, callerStarts, callers);
+	}
+
+	private <T> void runAll(List<Callable<T>> tasks) {
+		List<Future<T>> futures = new ArrayList<>(tasks.size());
+		try {
+			for (Callable<T> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			for (Future<T> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			cancel(futures);
+			throw new RuntimeException("failed to build the call graph", e.getCause());
+		}
+	}
+
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Future<?> future : futures) {
+			future.cancel(false);
+		}
+	}
+
+	/**
+	 * The type hierarchy, the methods and the call sites of a class.
+	 */
+	private static class ClassNode {
+
+		private static final int FLAG_STATIC = 1;
+		private static final int FLAG_PRIVATE = 2;
+		private static final int FLAG_ABSTRACT = 4;
+
+		private final String name;
+		private final String superName;
+		private final String[] interfaceNames;
+		private final boolean isInterface;
+		private final boolean isAbstract;
+
+		private final String[] methodNames;
+		private final String[] methodDescriptors;
+		private final int[] methodFlags;
+
+		private int firstMethodId;
+
+		/**
+		 * The kinds and the referenced methods of the call sites indexed by
+		 * method.
+		 */
+		private byte[][] callKinds;
+		private MethodReference[][] callReferences;
+
+		/**
+		 * The resolved and possibly external ids of the callees indexed by
+		 * method.
+		 */
+		private int[][] callees;
+
+		ClassNode(ClassFile classFile) {
+			ConstantPool constantPool = classFile.getConstantPool();
+			name = getClassName(constantPool, classFile.getThisClassIndex());
+			superName = classFile.getSuperClassIndex() != 0
+					? getClassName(constantPool, classFile.getSuperClassIndex())
+					: null;
+			List<Integer> interfaceIndexes = classFile.getInterfaces().getInterfaceIndexes();
+			interfaceNames = new String[interfaceIndexes.size()];
+			for (int i = 0; i < interfaceNames.length; i++) {
+				interfaceNames[i] = getClassName(constantPool, interfaceIndexes.get(i));
+			}
+			isInterface = classFile.isInterface();
+			isAbstract = classFile.isAbstract();
+
+			List<MethodInfo> methodInfos = classFile.getMethods().getMethodInfos();
+			int methodCount = methodInfos.size();
+			methodNames = new String[methodCount];
+			methodDescriptors = new String[methodCount];
+			methodFlags = new int[methodCount];
+			callKinds = new byte[methodCount][];
+			callReferences = new MethodReference[methodCount][];
+
+			BootstrapMethods bootstrapMethods = null;
+			CallSites callSites = new CallSites();
+			for (int i = 0; i < methodCount; i++) {
+				MethodInfo methodInfo = methodInfos.get(i);
+				methodNames[i] = constantPool.getUtf8Info(methodInfo.getNameIndex()).getValue();
+				methodDescriptors[i] = constantPool.getUtf8Info(methodInfo.getDescriptorIndex()).getValue();
+				methodFlags[i] = (methodInfo.isStatic() ? FLAG_STATIC : 0)
+						| (methodInfo.isPrivate() ? FLAG_PRIVATE : 0)
+						| (methodInfo.isAbstract() ? FLAG_ABSTRACT : 0);
+
+				callSites.clear();
+				CodeAttribute codeAttribute = (CodeAttribute) methodInfo.getAttributes().getAttributeInfo(
+						constantPool, AttributeType.CODE);
+				if (codeAttribute != null) {
+					InstructionCursor cursor = codeAttribute.getCode().getInstructionCursor();
+					while (cursor.next(OpcodeFilter.INVOKES)) {
+						int index = cursor.operand(0);
+						switch (Opcode.getByOpcode(cursor.opcode())) {
+						case INVOKESTATIC:
+							callSites.add(STATIC, constantPool.getMethodReference(index));
+							break;
+						case INVOKESPECIAL:
+							callSites.add(SPECIAL, constantPool.getMethodReference(index));
+							break;
+						case INVOKEDYNAMIC:
+							if (bootstrapMethods == null) {
+								bootstrapMethods = (BootstrapMethods) classFile.getAttributes().getAttributeInfo(
+										constantPool, AttributeType.BOOTSTRAP_METHODS);
+							}
+							BootstrapMethods.Method bootstrapMethod = bootstrapMethods.getBootstrapMethods().get(
+									constantPool.getInvokeDynamicInfo(index).getBootstrapMethodAttrIndex());
+							callSites.addMethodHandle(constantPool, bootstrapMethod.getBootstrapMethodRef());
+							for (int argument : bootstrapMethod.getBootstrapArguments()) {
+								if (constantPool.hasInfo(ConstantPoolInfoType.METHOD_HANDLE, argument)) {
+									callSites.addMethodHandle(constantPool, argument);
+								}
+							}
+							break;
+						default:
+							callSites.add(VIRTUAL, constantPool.getMethodReference(index));
+							break;
+						}
+					}
+				}
+				callKinds[i] = Arrays.copyOf(callSites.kinds, callSites.size);
+				callReferences[i] = Arrays.copyOf(callSites.references, callSites.size);
+			}
+		}
+
+		private static String getClassName(ConstantPool constantPool, int classIndex) {
+			return constantPool.getUtf8Info(constantPool.getClassInfo(classIndex).getNameIndex()).getValue();
+		}
+
+		int indexOf(String methodName, String methodDescriptor) {
+			for (int i = 0; i < methodNames.length; i++) {
+				if (methodNames[i].equals(methodName) && methodDescriptors[i].equals(methodDescriptor)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		boolean isStatic(int method) {
+			return (methodFlags[method] & FLAG_STATIC) != 0;
+		}
+
+		boolean isPrivate(int method) {
+			return (methodFlags[method] & FLAG_PRIVATE) != 0;
+		}
+
+		boolean isAbstract(int method) {
+			return (methodFlags[method] & FLAG_ABSTRACT) != 0;
+		}
+
+		boolean isConcrete() {
+			return !isInterface && !isAbstract;
+		}
+
+	}
+
+	/**
+	 * The call sites of a single method.
+	 */
+	private static class CallSites {
+
+		private byte[] kinds = new byte[16];
+		private MethodReference[] references = new MethodReference[16];
+		private int size;
+
+		void clear() {
+			size = 0;
+		}
+
+		void add(byte kind, MethodReference reference) {
+			if (size == kinds.length) {
+				kinds = Arrays.copyOf(kinds, size * 2);
+				references = Arrays.copyOf(references, size * 2);
+			}
+			kinds[size] = kind;
+			references[size] = reference;
+			size++;
+		}
+
+		void addMethodHandle(ConstantPool constantPool, int index) {
+			MethodHandleInfo methodHandle = constantPool.getMethodHandleInfo(index);
+			switch (methodHandle.getReferenceKind()) {
+			case 5: // REF_invokeVirtual
+			case 9: // REF_invokeInterface
+				add(VIRTUAL, constantPool.getMethodReference(methodHandle.getReferenceIndex()));
+				break;
+			case 6: // REF_invokeStatic
+				add(STATIC, constantPool.getMethodReference(methodHandle.getReferenceIndex()));
+				break;
+			case 7: // REF_invokeSpecial
+			case 8: // REF_newInvokeSpecial
+				add(SPECIAL, constantPool.getMethodReference(methodHandle.getReferenceIndex()));
+				break;
+			default:
+				// a field access
+				break;
+			}
+		}
+
+	}
+
+	/**
+	 * A growable list of {@code int}s.
+	 */
+	private static class IntList {
+
+		private int[] values = new int[16];
+		private int size;
+
+		void clear() {
+			size = 0;
+		}
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void addAll(int[] values) {
+			for (int value : values) {
+				add(value);
+			}
+		}
+
+		/**
+		 * Returns the values in ascending order without duplicates.
+		 */
+		int[] toSortedSet() {
+			if (size == 0) {
+				return EMPTY;
+			}
+			Arrays.sort(values, 0, size);
+			int count = 1;
+			for (int i = 1; i < size; i++) {
+				if (values[i] != values[count - 1]) {
+					values[count++] = values[i];
+				}
+			}
+			return Arrays.copyOf(values, count);
+		}
+
+	}
+
+}
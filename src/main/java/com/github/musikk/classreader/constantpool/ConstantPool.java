@@ -26,37 +26,91 @@
  */
 package com.github.musikk.classreader.constantpool;
 
+import java.nio.ByteBuffer;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
 
+import com.github.musikk.classreader.ByteBufferClassReader;
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.ClassReaderContext;
+import com.github.musikk.classreader.ParseOption;
 
 public class ConstantPool implements Iterable<ConstantPoolInfo> {
 
-	private final SortedMap<Integer, ConstantPoolInfo> constantPoolInfos;
+	/**
+	 * The entries indexed by their constant pool index. The first slot and the
+	 * slots following long and double constants are {@code null}.
+	 */
+	private final ConstantPoolInfo[] constantPoolInfos;
+
+	/**
+	 * The tags of the entries indexed by their constant pool index. Unusable
+	 * slots have the tag {@code 0}.
+	 */
+	private final byte[] tags;
+
+	/**
+	 * The bytes of the class if the entries are decoded lazily, otherwise
+	 * {@code null}.
+	 */
+	private final ByteBuffer classBytes;
+
+	/**
+	 * The positions in {@link #classBytes} of the entries (without their tag)
+	 * indexed by their constant pool index if the entries are decoded lazily,
+	 * otherwise {@code null}.
+	 */
+	private final int[] offsets;
 
 	/**
-	 * Maps types to the infos that are available for the type.
+	 * The resolved method references indexed by their constant pool index;
+	 * created on the first call to {@link #getMethodReference(int)}.
 	 */
-	private final Map<ConstantPoolInfoType, SortedMap<Integer, ConstantPoolInfo>> constantPoolInfosByType;
+	private MethodReference[] methodReferences;
 
-	private ConstantPool(SortedMap<Integer, ConstantPoolInfo> constantPoolInfos,
-			Map<ConstantPoolInfoType, SortedMap<Integer, ConstantPoolInfo>> constantPoolInfosByType) {
+	private ConstantPool(ConstantPoolInfo[] constantPoolInfos, byte[] tags) {
+		this(constantPoolInfos, tags, null, null);
+	}
+
+	private ConstantPool(ConstantPoolInfo[] constantPoolInfos, byte[] tags, ByteBuffer classBytes, int[] offsets) {
 		this.constantPoolInfos = constantPoolInfos;
-		this.constantPoolInfosByType = constantPoolInfosByType;
+		this.tags = tags;
+		this.classBytes = classBytes;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Returns the entry at the given index, decoding it first if necessary.
+	 * The index must be valid.
+	 * <p>
+	 * Entries are decoded and published under a lock because a
+	 * {@code ClassFile}, and with it its constant pool, may be shared between
+	 * threads.
+	 */
+	private ConstantPoolInfo resolve(int index) {
+		if (offsets == null) {
+			return constantPoolInfos[index];
+		}
+		synchronized (constantPoolInfos) {
+			ConstantPoolInfo cpi = constantPoolInfos[index];
+			if (cpi == null && tags[index] != 0) {
+				ByteBufferClassReader reader = new ByteBufferClassReader(classBytes);
+				reader.setPosition(offsets[index]);
+				cpi = ConstantPoolInfoType.getByTag(tags[index]).create(new ClassReaderContext(reader));
+				cpi.setTag(tags[index]);
+				constantPoolInfos[index] = cpi;
+			}
+			return cpi;
+		}
 	}
 
 	public ConstantPoolInfo getConstantPoolInfo(int index) {
-		ConstantPoolInfo cpi = constantPoolInfos.get(index - 1);
+		ConstantPoolInfo cpi = index > 0 && index < constantPoolInfos.length ? resolve(index) : null;
 		if (cpi == null) {
 			throw new IllegalArgumentException("The index " + index + " is invalid. "
 					+ "Is the previous entry a long or double constant?");
@@ -65,7 +119,7 @@ public class ConstantPool implements Iterable<ConstantPoolInfo> {
 	}
 
 	public boolean hasInfo(ConstantPoolInfoType type, int index) {
-		return constantPoolInfosByType.get(type).containsKey(index);
+		return index > 0 && index < tags.length && tags[index] == type.getValue();
 	}
 
 	public ConstantPoolInfo getInfo(ConstantPoolInfoType type, int index) {
@@ -73,11 +127,18 @@ public class ConstantPool implements Iterable<ConstantPoolInfo> {
 			throw new IllegalArgumentException("There is no constant pool info of type "
 					+ type + " at index " + index + ".");
 		}
-		return getConstantPoolInfo(index);
+		return resolve(index);
 	}
 
 	public List<ConstantPoolInfo> getInfos(ConstantPoolInfoType type) {
-		return Collections.unmodifiableList(new ArrayList<>(constantPoolInfosByType.get(type).values()));
+		byte tag = type.getValue();
+		List<ConstantPoolInfo> infos = new ArrayList<>();
+		for (int i = 1; i < tags.length; i++) {
+			if (tags[i] == tag) {
+				infos.add(resolve(i));
+			}
+		}
+		return Collections.unmodifiableList(infos);
 	}
 
 	public Utf8Info getUtf8Info(int index) {
@@ -192,29 +253,106 @@ public class ConstantPool implements Iterable<ConstantPoolInfo> {
 		return new DowncastList<>(getInfos(ConstantPoolInfoType.INVOKE_DYNAMIC));
 	}
 
+	/**
+	 * Returns the method referenced by the {@link ConstantMethodrefInfo},
+	 * {@link InterfaceMethodrefInfo} or {@link InvokeDynamicInfo} at the given
+	 * index. The names are resolved once per index, later calls return the
+	 * same instance.
+	 *
+	 * @param index
+	 *            the constant pool index
+	 * @return the method reference
+	 */
+	public MethodReference getMethodReference(int index) {
+		// racing threads at worst resolve a reference twice, MethodReference is immutable
+		if (methodReferences == null) {
+			methodReferences = new MethodReference[tags.length];
+		}
+		MethodReference methodReference = index > 0 && index < tags.length ? methodReferences[index] : null;
+		if (methodReference == null) {
+			methodReference = createMethodReference(index);
+			methodReferences[index] = methodReference;
+		}
+		return methodReference;
+	}
+
+	private MethodReference createMethodReference(int index) {
+		String owner;
+		int nameAndTypeIndex;
+		if (hasInfo(ConstantPoolInfoType.METHODREF, index) || hasInfo(ConstantPoolInfoType.INTERFACE_METHODREF, index)) {
+			RefInfo refInfo = (RefInfo) resolve(index);
+			owner = getUtf8Info(getClassInfo(refInfo.getClassIndex()).getNameIndex()).getValue();
+			nameAndTypeIndex = refInfo.getNameAndTypeIndex();
+		} else if (hasInfo(ConstantPoolInfoType.INVOKE_DYNAMIC, index)) {
+			owner = null;
+			nameAndTypeIndex = getInvokeDynamicInfo(index).getNameAndTypeIndex();
+		} else {
+			throw new IllegalArgumentException("There is no method reference at index " + index + ".");
+		}
+		NameAndTypeInfo nameAndType = getNameAndTypeInfo(nameAndTypeIndex);
+		return new MethodReference(owner,
+				getUtf8Info(nameAndType.getNameIndex()).getValue(),
+				getUtf8Info(nameAndType.getDescriptorIndex()).getValue());
+	}
+
 	public static ConstantPool createConstantPool(ClassReaderContext ctxt) {
 		ClassReader reader = ctxt.getClassReader();
-		int constantPoolCount = reader.readUnsignedShort();
-		SortedMap<Integer, ConstantPoolInfo> constantPoolInfos = new TreeMap<>();
-		Map<ConstantPoolInfoType, SortedMap<Integer, ConstantPoolInfo>> constantPoolInfosByType = new HashMap<>();
-		for (ConstantPoolInfoType t : ConstantPoolInfoType.values()) {
-			constantPoolInfosByType.put(t, new TreeMap<Integer, ConstantPoolInfo>());
+		if (ctxt.hasOption(ParseOption.LAZY_CONSTANT_POOL) && reader instanceof ByteBufferClassReader) {
+			return createLazyConstantPool(ctxt);
 		}
 
-		for (int i = 0; i < constantPoolCount - 1; i++) {
+		int constantPoolCount = reader.readUnsignedShort();
+		ConstantPoolInfo[] constantPoolInfos = new ConstantPoolInfo[constantPoolCount];
+		byte[] tags = new byte[constantPoolCount];
+
+		for (int i = 1; i < constantPoolCount; i++) {
 			byte tag = reader.readByte();
 			ConstantPoolInfoType cpit = ConstantPoolInfoType.getByTag(tag);
 
 			ConstantPoolInfo cpi = cpit.create(ctxt);
 			cpi.setTag(tag);
-			constantPoolInfos.put(i, cpi);
-			constantPoolInfosByType.get(cpit).put(i + 1, cpi);
+			constantPoolInfos[i] = cpi;
+			tags[i] = tag;
 			if (cpit.isDoubleSized()) {
 				i++;
 			}
 		}
 
-		ConstantPool constantPool = new ConstantPool(constantPoolInfos, constantPoolInfosByType);
+		ConstantPool constantPool = new ConstantPool(constantPoolInfos, tags);
+		ctxt.setConstantPool(constantPool);
+		return constantPool;
+	}
+
+	/**
+	 * Creates a {@code ConstantPool} that only records the positions of its
+	 * entries. The entries are decoded as they are accessed.
+	 */
+	private static ConstantPool createLazyConstantPool(ClassReaderContext ctxt) {
+		ByteBufferClassReader reader = (ByteBufferClassReader) ctxt.getClassReader();
+		int constantPoolCount = reader.readUnsignedShort();
+		ConstantPoolInfo[] constantPoolInfos = new ConstantPoolInfo[constantPoolCount];
+		byte[] tags = new byte[constantPoolCount];
+		int[] offsets = new int[constantPoolCount];
+
+		for (int i = 1; i < constantPoolCount; i++) {
+			byte tag = reader.readByte();
+			ConstantPoolInfoType cpit = ConstantPoolInfoType.getByTag(tag);
+
+			tags[i] = tag;
+			offsets[i] = reader.getPosition();
+			int infoLength = cpit.getInfoLength();
+			if (infoLength < 0) {
+				// only UTF-8 entries have a variable length
+				infoLength = 2 + reader.readUnsignedShort();
+				reader.setPosition(offsets[i]);
+			}
+			reader.skipBytes(infoLength);
+			if (cpit.isDoubleSized()) {
+				i++;
+			}
+		}
+
+		ConstantPool constantPool = new ConstantPool(constantPoolInfos, tags, reader.getBuffer(), offsets);
 		ctxt.setConstantPool(constantPool);
 		return constantPool;
 	}
@@ -233,25 +371,30 @@ public class ConstantPool implements Iterable<ConstantPoolInfo> {
 	 */
 	public class ConstantPoolIterator implements Iterator<ConstantPoolInfo> {
 
-		int currentIndex = 0;
+		int currentIndex = nextIndex(1);
 
 		@Override
 		public boolean hasNext() {
-			return currentIndex <= constantPoolInfos.size();
+			return currentIndex < tags.length;
 		}
 
 		@Override
 		public ConstantPoolInfo next() {
-			ConstantPoolInfo cpi = constantPoolInfos.get(currentIndex++);
-			if (cpi == null) {
-				cpi = constantPoolInfos.get(currentIndex++);
-				if (cpi == null) {
-					throw new IllegalStateException("Two consecutive entries in the constant pool are null.");
-				}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
 			}
+			ConstantPoolInfo cpi = resolve(currentIndex);
+			currentIndex = nextIndex(currentIndex + 1);
 			return cpi;
 		}
 
+		private int nextIndex(int index) {
+			while (index < tags.length && tags[index] == 0) {
+				index++;
+			}
+			return index;
+		}
+
 		@Override
 		public void remove() {
 			throw new UnsupportedOperationException();
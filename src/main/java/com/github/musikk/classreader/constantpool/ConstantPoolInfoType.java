@@ -30,20 +30,20 @@ import com.github.musikk.classreader.ClassReaderContext;
 
 public enum ConstantPoolInfoType {
 
-	CLASS(7),
-	FIELDREF(9),
-	METHODREF(10),
-	INTERFACE_METHODREF(11),
-	STRING(8),
-	INTEGER(3),
-	FLOAT(4),
-	LONG(5),
-	DOUBLE(6),
-	NAME_AND_TYPE(12),
-	UTF8(1),
-	METHOD_HANDLE(15),
-	METHOD_TYPE(16),
-	INVOKE_DYNAMIC(18);
+	CLASS(7, 2),
+	FIELDREF(9, 4),
+	METHODREF(10, 4),
+	INTERFACE_METHODREF(11, 4),
+	STRING(8, 2),
+	INTEGER(3, 4),
+	FLOAT(4, 4),
+	LONG(5, 8),
+	DOUBLE(6, 8),
+	NAME_AND_TYPE(12, 4),
+	UTF8(1, -1),
+	METHOD_HANDLE(15, 3),
+	METHOD_TYPE(16, 2),
+	INVOKE_DYNAMIC(18, 4);
 
 	private static final ConstantPoolInfoType[] TAG_MAPPING = new ConstantPoolInfoType[18];
 
@@ -55,14 +55,30 @@ public enum ConstantPoolInfoType {
 
 	private byte value;
 
-	private ConstantPoolInfoType(int value) {
+	/**
+	 * The number of bytes following the tag or -1 if the length is variable.
+	 */
+	private final int infoLength;
+
+	private ConstantPoolInfoType(int value, int infoLength) {
 		this.value = (byte) value;
+		this.infoLength = infoLength;
 	}
 
 	public byte getValue() {
 		return value;
 	}
 
+	/**
+	 * Returns the number of bytes an entry of this type occupies in the class
+	 * file without its tag.
+	 *
+	 * @return the length or -1 if the length is variable ({@link #UTF8})
+	 */
+	public int getInfoLength() {
+		return infoLength;
+	}
+
 	public static ConstantPoolInfoType getByTag(byte tag) {
 		if (tag < 1 || tag > 18) {
 			throw new IllegalArgumentException("unknown tag " + (tag & 0xFF));
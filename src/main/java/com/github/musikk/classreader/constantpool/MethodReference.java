@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.constantpool;
+
+/**
+ * A method referenced by a {@link ConstantMethodrefInfo},
+ * {@link InterfaceMethodrefInfo} or {@link InvokeDynamicInfo} with all names
+ * resolved.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class MethodReference {
+
+	private final String owner;
+	private final String name;
+	private final String descriptor;
+
+	public MethodReference(String owner, String name, String descriptor) {
+		this.owner = owner;
+		this.name = name;
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * Returns the internal name of the class or interface declaring the
+	 * method, e.g. {@code java/lang/Object}.
+	 *
+	 * @return the owner or {@code null} for a dynamic call site
+	 */
+	public String getOwner() {
+		return owner;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescriptor() {
+		return descriptor;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((owner == null) ? 0 : owner.hashCode());
+		result = prime * result + name.hashCode();
+		result = prime * result + descriptor.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof MethodReference)) {
+			return false;
+		}
+		MethodReference other = (MethodReference) obj;
+		return (owner == null ? other.owner == null : owner.equals(other.owner))
+				&& name.equals(other.name) && descriptor.equals(other.descriptor);
+	}
+
+	@Override
+	public String toString() {
+		return (owner == null ? "" : owner + ".") + name + descriptor;
+	}
+
+}
@@ -34,9 +34,9 @@ public class NameAndTypeInfo extends ConstantPoolInfo {
 	private final int nameIndex;
 	private final int descriptorIndex;
 
-	public NameAndTypeInfo(int descriptorIndex, int nameIndex) {
-		this.descriptorIndex = descriptorIndex;
+	public NameAndTypeInfo(int nameIndex, int descriptorIndex) {
 		this.nameIndex = nameIndex;
+		this.descriptorIndex = descriptorIndex;
 	}
 
 	public int getNameIndex() {
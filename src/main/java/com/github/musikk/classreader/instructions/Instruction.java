@@ -27,14 +27,18 @@
 package com.github.musikk.classreader.instructions;
 
 import java.util.Arrays;
-import java.util.Map;
 
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.util.InstructionReader;
 
 public class Instruction {
 
-	private static final Map<Integer, InstructionFactory> instructionFactories;
+	/**
+	 * The factories indexed by opcode.
+	 */
+	private static final InstructionFactory[] instructionFactories;
+
+	private static final Operand[] NO_OPERANDS = new Operand[0];
 
 	private final int opcode;
 	private final String mnemonic;
@@ -46,7 +50,7 @@ public class Instruction {
 		this.opcode = opcode;
 		this.mnemonic = mnemonic;
 		this.instructionSize = instructionSize;
-		this.operands = operands != null ? operands : new Operand[] {};
+		this.operands = operands != null ? operands : NO_OPERANDS;
 	}
 
 	public String getMnemonic() {
@@ -61,6 +65,16 @@ public class Instruction {
 		return opcode;
 	}
 
+	/**
+	 * Returns the {@link Opcode} of the instruction which tells what kind of
+	 * instruction this is.
+	 *
+	 * @return the opcode
+	 */
+	public Opcode getOpcodeType() {
+		return Opcode.getByOpcode(opcode);
+	}
+
 	/**
 	 * Queries the size of the instruction in bytes. The size is the size of the
 	 * instruction itself plus all operands.
@@ -79,7 +93,7 @@ public class Instruction {
 		} catch (RuntimeException e) {
 			return null;
 		}
-		InstructionFactory instructionFactory = instructionFactories.get(Integer.valueOf(opcode));
+		InstructionFactory instructionFactory = instructionFactories[opcode];
 
 		if (instructionFactory == null) {
 			throw new RuntimeException(String.format("illegal opcode: 0x%x", opcode));
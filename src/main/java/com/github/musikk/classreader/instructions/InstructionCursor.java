@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.instructions;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A cursor that walks the byte code of a method in place. Unlike
+ * {@link Instruction#getNextInstruction(com.github.musikk.classreader.ClassReader, int)}
+ * it does not create any objects: opcode, length and operands of the current
+ * instruction are read directly from the code bytes. The operands are the
+ * same and in the same order as {@link Instruction#getOperands()}.
+ * <p>
+ * The cursor starts before the first instruction and is moved with
+ * {@link #next()}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class InstructionCursor {
+
+	private final static int OPCODE_TABLESWITCH = 0xaa;
+	private final static int OPCODE_LOOKUPSWITCH = 0xab;
+	private final static int OPCODE_WIDE = 0xc4;
+	private final static int OPCODE_IINC = 0x84;
+
+	/**
+	 * The size of every instruction indexed by opcode. Instructions of
+	 * variable size have size {@code -1}, unused opcodes size {@code 0}.
+	 */
+	private final static int[] SIZES = new int[256];
+
+	/**
+	 * The types of the operands (without {@link OperandType#ZERO}) of every
+	 * instruction of fixed size indexed by opcode.
+	 */
+	private final static OperandType[][] OPERAND_TYPES = new OperandType[256][];
+
+	/**
+	 * The positions of the operands relative to the opcode of every
+	 * instruction of fixed size indexed by opcode.
+	 */
+	private final static int[][] OPERAND_POSITIONS = new int[256][];
+
+	static {
+		for (Opcode opcode : Opcode.values()) {
+			int size = opcode.getSize();
+			SIZES[opcode.getOpcode()] = size;
+			if (size == -1) {
+				continue;
+			}
+
+			OperandType[] types = opcode.getOperandTypes();
+			int operandCount = 0;
+			for (OperandType type : types) {
+				if (type != OperandType.ZERO) {
+					operandCount++;
+				}
+			}
+			OperandType[] operandTypes = new OperandType[operandCount];
+			int[] operandPositions = new int[operandCount];
+			int position = 1;
+			int i = 0;
+			for (OperandType type : types) {
+				if (type != OperandType.ZERO) {
+					operandTypes[i] = type;
+					operandPositions[i] = position;
+					i++;
+				}
+				position += type.getSize();
+			}
+			OPERAND_TYPES[opcode.getOpcode()] = operandTypes;
+			OPERAND_POSITIONS[opcode.getOpcode()] = operandPositions;
+		}
+	}
+
+	private final byte[] code;
+	private final int start;
+	private final int end;
+
+	/**
+	 * The offset of the current instruction from the start of the code or
+	 * {@code -1} before the first instruction.
+	 */
+	private int offset = -1;
+	private int opcode;
+	private int length;
+	private int operandCount;
+
+	/**
+	 * The position in {@link #code} of the first operand of a switch
+	 * instruction, i.e. after the padding.
+	 */
+	private int switchOperandsStart;
+
+	/**
+	 * Creates a cursor over the code between {@code start} and
+	 * {@code start + length}. The array is not copied and must not be
+	 * modified.
+	 *
+	 * @param code
+	 *            the array containing the code
+	 * @param start
+	 *            the index of the first byte of the code
+	 * @param length
+	 *            the length of the code in bytes
+	 */
+	public InstructionCursor(byte[] code, int start, int length) {
+		this.code = code;
+		this.start = start;
+		this.end = start + length;
+	}
+
+	/**
+	 * Moves to the next instruction.
+	 *
+	 * @return {@code false} if there is no next instruction
+	 */
+	public boolean next() {
+		int position = offset < 0 ? start : start + offset + length;
+		if (position >= end) {
+			offset = end - start;
+			length = 0;
+			return false;
+		}
+		offset = position - start;
+		opcode = code[position] & 0xff;
+
+		int size = SIZES[opcode];
+		if (size > 0) {
+			length = size;
+			operandCount = OPERAND_TYPES[opcode].length;
+		} else if (size == 0) {
+			throw new RuntimeException(String.format("illegal opcode: 0x%x", opcode));
+		} else if (opcode == OPCODE_WIDE) {
+			checkAvailable(position, 2);
+			int modifiedOpcode = code[position + 1] & 0xff;
+			if (modifiedOpcode == OPCODE_IINC) {
+				length = 6;
+				operandCount = 3;
+			} else if (isWideLoadOrStore(modifiedOpcode)) {
+				length = 4;
+				operandCount = 2;
+			} else {
+				throw new RuntimeException("illegal opcode for wide instruction: " + modifiedOpcode);
+			}
+		} else {
+			switchOperandsStart = position + 1;
+			while ((switchOperandsStart - start) % 4 != 0) {
+				checkAvailable(switchOperandsStart, 1);
+				if (code[switchOperandsStart] != 0) {
+					throw new RuntimeException("padding byte must be zero but was " + code[switchOperandsStart]);
+				}
+				switchOperandsStart++;
+			}
+			// computed as long, the counts of malformed code may overflow
+			long switchOperandCount;
+			if (opcode == OPCODE_TABLESWITCH) {
+				checkAvailable(switchOperandsStart, 12);
+				int low = readInt(switchOperandsStart + 4);
+				int high = readInt(switchOperandsStart + 8);
+				if (high < low) {
+					throw new RuntimeException("illegal tableswitch range " + low + " to " + high
+							+ " at offset " + offset);
+				}
+				switchOperandCount = 3 + ((long) high - low + 1);
+			} else if (opcode == OPCODE_LOOKUPSWITCH) {
+				checkAvailable(switchOperandsStart, 8);
+				int npairs = readInt(switchOperandsStart + 4);
+				if (npairs < 0) {
+					throw new RuntimeException("illegal number of lookupswitch pairs " + npairs
+							+ " at offset " + offset);
+				}
+				switchOperandCount = 2 + 2L * npairs;
+			} else {
+				throw new RuntimeException("illegal opcode " + opcode);
+			}
+			checkAvailable(switchOperandsStart, 4 * switchOperandCount);
+			operandCount = (int) switchOperandCount;
+			length = switchOperandsStart - position + 4 * operandCount;
+		}
+		checkAvailable(position, length);
+		return true;
+	}
+
+	/**
+	 * Checks that the code contains the given number of bytes starting at the
+	 * given position, which belong to the current instruction.
+	 */
+	private void checkAvailable(int position, long byteCount) {
+		if (position + byteCount > end) {
+			throw new RuntimeException("instruction at offset " + offset + " exceeds the code");
+		}
+	}
+
+	/**
+	 * Moves to the next instruction whose opcode is contained in the given
+	 * filter. Other instructions are skipped without reading their operands.
+	 *
+	 * @param filter
+	 *            the opcodes of interest
+	 * @return {@code false} if there is no such instruction
+	 */
+	public boolean next(OpcodeFilter filter) {
+		while (next()) {
+			if (filter.matches(opcode)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the offset of the current instruction from the start of the
+	 * code.
+	 *
+	 * @return the offset
+	 */
+	public int offset() {
+		checkCurrent();
+		return offset;
+	}
+
+	/**
+	 * Returns the opcode of the current instruction.
+	 *
+	 * @return the opcode
+	 */
+	public int opcode() {
+		checkCurrent();
+		return opcode;
+	}
+
+	/**
+	 * Returns the size of the current instruction in bytes including all
+	 * operands and padding.
+	 *
+	 * @return the size in bytes
+	 */
+	public int length() {
+		checkCurrent();
+		return length;
+	}
+
+	/**
+	 * Returns the number of operands of the current instruction.
+	 *
+	 * @return the number of operands
+	 */
+	public int operandCount() {
+		checkCurrent();
+		return operandCount;
+	}
+
+	/**
+	 * Returns an operand of the current instruction.
+	 *
+	 * @param i
+	 *            the position of the operand
+	 * @return the value of the operand
+	 */
+	public int operand(int i) {
+		checkCurrent();
+		if (i < 0 || i >= operandCount) {
+			throw new IndexOutOfBoundsException("operand " + i + " of " + operandCount);
+		}
+		int position = start + offset;
+		int size = SIZES[opcode];
+		if (size > 0) {
+			position += OPERAND_POSITIONS[opcode][i];
+			switch (OPERAND_TYPES[opcode][i]) {
+			case BYTE:
+				return code[position];
+			case UNSIGNED_BYTE:
+				return code[position] & 0xff;
+			case SHORT:
+				return (short) readUnsignedShort(position);
+			case UNSIGNED_SHORT:
+				return readUnsignedShort(position);
+			default:
+				return readInt(position);
+			}
+		} else if (opcode == OPCODE_WIDE) {
+			// opcode, index and (only iinc) constant
+			return i == 0 ? code[position + 1] & 0xff : readUnsignedShort(position + 2 * i);
+		} else {
+			return readInt(switchOperandsStart + 4 * i);
+		}
+	}
+
+	/**
+	 * Checks if {@code wide} can modify the given opcode and only adds an
+	 * index, i.e. the opcode is one of {@code iload}, {@code lload},
+	 * {@code fload}, {@code dload}, {@code aload}, the corresponding stores
+	 * or {@code ret}.
+	 */
+	private static boolean isWideLoadOrStore(int opcode) {
+		return opcode >= 0x15 && opcode <= 0x19 || opcode >= 0x36 && opcode <= 0x3a || opcode == 0xa9;
+	}
+
+	private void checkCurrent() {
+		if (offset < 0 || start + offset >= end) {
+			throw new NoSuchElementException();
+		}
+	}
+
+	private int readUnsignedShort(int position) {
+		return (code[position] & 0xff) << 8 | code[position + 1] & 0xff;
+	}
+
+	private int readInt(int position) {
+		return code[position] << 24 | (code[position + 1] & 0xff) << 16 | (code[position + 2] & 0xff) << 8
+				| code[position + 3] & 0xff;
+	}
+
+}
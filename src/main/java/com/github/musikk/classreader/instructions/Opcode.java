@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.instructions;
+
+import static com.github.musikk.classreader.instructions.OperandType.BYTE;
+import static com.github.musikk.classreader.instructions.OperandType.INT;
+import static com.github.musikk.classreader.instructions.OperandType.SHORT;
+import static com.github.musikk.classreader.instructions.OperandType.UNSIGNED_BYTE;
+import static com.github.musikk.classreader.instructions.OperandType.UNSIGNED_SHORT;
+import static com.github.musikk.classreader.instructions.OperandType.ZERO;
+
+/**
+ * The opcodes of the Java Virtual Machine with their mnemonic, size and the
+ * layout of their operands. The table is plain Java so that it costs next to
+ * nothing to initialize.
+ *
+ * @author Werner Hahn
+ *
+ */
+public enum Opcode {
+
+	NOP(0x00, "nop"),
+	ACONST_NULL(0x01, "aconst_null"),
+	ICONST_M1(0x02, "iconst_m1"),
+	ICONST_0(0x03, "iconst_0"),
+	ICONST_1(0x04, "iconst_1"),
+	ICONST_2(0x05, "iconst_2"),
+	ICONST_3(0x06, "iconst_3"),
+	ICONST_4(0x07, "iconst_4"),
+	ICONST_5(0x08, "iconst_5"),
+	LCONST_0(0x09, "lconst_0"),
+	LCONST_1(0x0a, "lconst_1"),
+	FCONST_0(0x0b, "fconst_0"),
+	FCONST_1(0x0c, "fconst_1"),
+	FCONST_2(0x0d, "fconst_2"),
+	DCONST_0(0x0e, "dconst_0"),
+	DCONST_1(0x0f, "dconst_1"),
+	BIPUSH(0x10, "bipush", BYTE, "byte"),
+	SIPUSH(0x11, "sipush", SHORT, "short"),
+	LDC(0x12, "ldc", UNSIGNED_BYTE, "index"),
+	LDC_W(0x13, "ldc_w", UNSIGNED_SHORT, "index"),
+	LDC2_W(0x14, "ldc2_w", UNSIGNED_SHORT, "index"),
+	ILOAD(0x15, "iload", UNSIGNED_BYTE, "index"),
+	LLOAD(0x16, "lload", UNSIGNED_BYTE, "index"),
+	FLOAD(0x17, "fload", UNSIGNED_BYTE, "index"),
+	DLOAD(0x18, "dload", UNSIGNED_BYTE, "index"),
+	ALOAD(0x19, "aload", UNSIGNED_BYTE, "index"),
+	ILOAD_0(0x1a, "iload_0"),
+	ILOAD_1(0x1b, "iload_1"),
+	ILOAD_2(0x1c, "iload_2"),
+	ILOAD_3(0x1d, "iload_3"),
+	LLOAD_0(0x1e, "lload_0"),
+	LLOAD_1(0x1f, "lload_1"),
+	LLOAD_2(0x20, "lload_2"),
+	LLOAD_3(0x21, "lload_3"),
+	FLOAD_0(0x22, "fload_0"),
+	FLOAD_1(0x23, "fload_1"),
+	FLOAD_2(0x24, "fload_2"),
+	FLOAD_3(0x25, "fload_3"),
+	DLOAD_0(0x26, "dload_0"),
+	DLOAD_1(0x27, "dload_1"),
+	DLOAD_2(0x28, "dload_2"),
+	DLOAD_3(0x29, "dload_3"),
+	ALOAD_0(0x2a, "aload_0"),
+	ALOAD_1(0x2b, "aload_1"),
+	ALOAD_2(0x2c, "aload_2"),
+	ALOAD_3(0x2d, "aload_3"),
+	IALOAD(0x2e, "iaload"),
+	LALOAD(0x2f, "laload"),
+	FALOAD(0x30, "faload"),
+	DALOAD(0x31, "daload"),
+	AALOAD(0x32, "aaload"),
+	BALOAD(0x33, "baload"),
+	CALOAD(0x34, "caload"),
+	SALOAD(0x35, "saload"),
+	ISTORE(0x36, "istore", UNSIGNED_BYTE, "index"),
+	LSTORE(0x37, "lstore", UNSIGNED_BYTE, "index"),
+	FSTORE(0x38, "fstore", UNSIGNED_BYTE, "index"),
+	DSTORE(0x39, "dstore", UNSIGNED_BYTE, "index"),
+	ASTORE(0x3a, "astore", UNSIGNED_BYTE, "index"),
+	ISTORE_0(0x3b, "istore_0"),
+	ISTORE_1(0x3c, "istore_1"),
+	ISTORE_2(0x3d, "istore_2"),
+	ISTORE_3(0x3e, "istore_3"),
+	LSTORE_0(0x3f, "lstore_0"),
+	LSTORE_1(0x40, "lstore_1"),
+	LSTORE_2(0x41, "lstore_2"),
+	LSTORE_3(0x42, "lstore_3"),
+	FSTORE_0(0x43, "fstore_0"),
+	FSTORE_1(0x44, "fstore_1"),
+	FSTORE_2(0x45, "fstore_2"),
+	FSTORE_3(0x46, "fstore_3"),
+	DSTORE_0(0x47, "dstore_0"),
+	DSTORE_1(0x48, "dstore_1"),
+	DSTORE_2(0x49, "dstore_2"),
+	DSTORE_3(0x4a, "dstore_3"),
+	ASTORE_0(0x4b, "astore_0"),
+	ASTORE_1(0x4c, "astore_1"),
+	ASTORE_2(0x4d, "astore_2"),
+	ASTORE_3(0x4e, "astore_3"),
+	IASTORE(0x4f, "iastore"),
+	LASTORE(0x50, "lastore"),
+	FASTORE(0x51, "fastore"),
+	DASTORE(0x52, "dastore"),
+	AASTORE(0x53, "aastore"),
+	BASTORE(0x54, "bastore"),
+	CASTORE(0x55, "castore"),
+	SASTORE(0x56, "sastore"),
+	POP(0x57, "pop"),
+	POP2(0x58, "pop2"),
+	DUP(0x59, "dup"),
+	DUP_X1(0x5a, "dup_x1"),
+	DUP_X2(0x5b, "dup_x2"),
+	DUP2(0x5c, "dup2"),
+	DUP2_X1(0x5d, "dup2_x1"),
+	DUP2_X2(0x5e, "dup2_x2"),
+	SWAP(0x5f, "swap"),
+	IADD(0x60, "iadd"),
+	LADD(0x61, "ladd"),
+	FADD(0x62, "fadd"),
+	DADD(0x63, "dadd"),
+	ISUB(0x64, "isub"),
+	LSUB(0x65, "lsub"),
+	FSUB(0x66, "fsub"),
+	DSUB(0x67, "dsub"),
+	IMUL(0x68, "imul"),
+	LMUL(0x69, "lmul"),
+	FMUL(0x6a, "fmul"),
+	DMUL(0x6b, "dmul"),
+	IDIV(0x6c, "idiv"),
+	LDIV(0x6d, "ldiv"),
+	FDIV(0x6e, "fdiv"),
+	DDIV(0x6f, "ddiv"),
+	IREM(0x70, "irem"),
+	LREM(0x71, "lrem"),
+	FREM(0x72, "frem"),
+	DREM(0x73, "drem"),
+	INEG(0x74, "ineg"),
+	LNEG(0x75, "lneg"),
+	FNEG(0x76, "fneg"),
+	DNEG(0x77, "dneg"),
+	ISHL(0x78, "ishl"),
+	LSHL(0x79, "lshl"),
+	ISHR(0x7a, "ishr"),
+	LSHR(0x7b, "lshr"),
+	IUSHR(0x7c, "iushr"),
+	LUSHR(0x7d, "lushr"),
+	IAND(0x7e, "iand"),
+	LAND(0x7f, "land"),
+	IOR(0x80, "ior"),
+	LOR(0x81, "lor"),
+	IXOR(0x82, "ixor"),
+	LXOR(0x83, "lxor"),
+	IINC(0x84, "iinc", UNSIGNED_BYTE, "index", BYTE, "const"),
+	I2L(0x85, "i2l"),
+	I2F(0x86, "i2f"),
+	I2D(0x87, "i2d"),
+	L2I(0x88, "l2i"),
+	L2F(0x89, "l2f"),
+	L2D(0x8a, "l2d"),
+	F2I(0x8b, "f2i"),
+	F2L(0x8c, "f2l"),
+	F2D(0x8d, "f2d"),
+	D2I(0x8e, "d2i"),
+	D2L(0x8f, "d2l"),
+	D2F(0x90, "d2f"),
+	I2B(0x91, "i2b"),
+	I2C(0x92, "i2c"),
+	I2S(0x93, "i2s"),
+	LCMP(0x94, "lcmp"),
+	FCMPL(0x95, "fcmpl"),
+	FCMPG(0x96, "fcmpg"),
+	DCMPL(0x97, "dcmpl"),
+	DCMPG(0x98, "dcmpg"),
+	IFEQ(0x99, "ifeq", SHORT, "branchoffset"),
+	IFNE(0x9a, "ifne", SHORT, "branchoffset"),
+	IFLT(0x9b, "iflt", SHORT, "branchoffset"),
+	IFGE(0x9c, "ifge", SHORT, "branchoffset"),
+	IFGT(0x9d, "ifgt", SHORT, "branchoffset"),
+	IFLE(0x9e, "ifle", SHORT, "branchoffset"),
+	IF_ICMPEQ(0x9f, "if_icmpeq", SHORT, "branchoffset"),
+	IF_ICMPNE(0xa0, "if_icmpne", SHORT, "branchoffset"),
+	IF_ICMPLT(0xa1, "if_icmplt", SHORT, "branchoffset"),
+	IF_ICMPGE(0xa2, "if_icmpge", SHORT, "branchoffset"),
+	IF_ICMPGT(0xa3, "if_icmpgt", SHORT, "branchoffset"),
+	IF_ICMPLE(0xa4, "if_icmple", SHORT, "branchoffset"),
+	IF_ACMPEQ(0xa5, "if_acmpeq", SHORT, "branchoffset"),
+	IF_ACMPNE(0xa6, "if_acmpne", SHORT, "branchoffset"),
+	GOTO(0xa7, "goto", SHORT, "branchoffset"),
+	JSR(0xa8, "jsr", SHORT, "branchoffset"),
+	RET(0xa9, "ret", UNSIGNED_BYTE, "index"),
+	TABLESWITCH(0xaa, "tableswitch", -1),
+	LOOKUPSWITCH(0xab, "lookupswitch", -1),
+	IRETURN(0xac, "ireturn"),
+	LRETURN(0xad, "lreturn"),
+	FRETURN(0xae, "freturn"),
+	DRETURN(0xaf, "dreturn"),
+	ARETURN(0xb0, "areturn"),
+	RETURN(0xb1, "return"),
+	GETSTATIC(0xb2, "getstatic", UNSIGNED_SHORT, "index"),
+	PUTSTATIC(0xb3, "putstatic", UNSIGNED_SHORT, "index"),
+	GETFIELD(0xb4, "getfield", UNSIGNED_SHORT, "index"),
+	PUTFIELD(0xb5, "putfield", UNSIGNED_SHORT, "index"),
+	INVOKEVIRTUAL(0xb6, "invokevirtual", UNSIGNED_SHORT, "index"),
+	INVOKESPECIAL(0xb7, "invokespecial", UNSIGNED_SHORT, "index"),
+	INVOKESTATIC(0xb8, "invokestatic", UNSIGNED_SHORT, "index"),
+	INVOKEINTERFACE(0xb9, "invokeinterface", UNSIGNED_SHORT, "index", UNSIGNED_BYTE, "count", ZERO, "0"),
+	INVOKEDYNAMIC(0xba, "invokedynamic", UNSIGNED_SHORT, "index", ZERO, "0", ZERO, "0"),
+	NEW(0xbb, "new", UNSIGNED_SHORT, "index"),
+	NEWARRAY(0xbc, "newarray", UNSIGNED_BYTE, "atype"),
+	ANEWARRAY(0xbd, "anewarray", UNSIGNED_SHORT, "index"),
+	ARRAYLENGTH(0xbe, "arraylength"),
+	ATHROW(0xbf, "athrow"),
+	CHECKCAST(0xc0, "checkcast", UNSIGNED_SHORT, "index"),
+	INSTANCEOF(0xc1, "instanceof", UNSIGNED_SHORT, "index"),
+	MONITORENTER(0xc2, "monitorenter"),
+	MONITOREXIT(0xc3, "monitorexit"),
+	WIDE(0xc4, "wide", -1),
+	MULTIANEWARRAY(0xc5, "multianewarray", UNSIGNED_SHORT, "index", UNSIGNED_BYTE, "dimensions"),
+	IFNULL(0xc6, "ifnull", SHORT, "branchoffset"),
+	IFNONNULL(0xc7, "ifnonnull", SHORT, "branchoffset"),
+	GOTO_W(0xc8, "goto_w", INT, "branchoffset"),
+	JSR_W(0xc9, "jsr_w", INT, "branchoffset"),
+	BREAKPOINT(0xca, "breakpoint"),
+	IMPDEP1(0xfe, "impdep1"),
+	IMPDEP2(0xff, "impdep2");
+
+	private static final Opcode[] BY_OPCODE = new Opcode[256];
+
+	static {
+		for (Opcode opcode : values()) {
+			BY_OPCODE[opcode.opcode] = opcode;
+		}
+	}
+
+	private final int opcode;
+	private final String mnemonic;
+	private final int size;
+	private final OperandType[] operandTypes;
+	private final String[] operandNames;
+
+	private Opcode(int opcode, String mnemonic) {
+		this(opcode, mnemonic, 1, new OperandType[0], new String[0]);
+	}
+
+	private Opcode(int opcode, String mnemonic, int size) {
+		this(opcode, mnemonic, size, new OperandType[0], new String[0]);
+	}
+
+	private Opcode(int opcode, String mnemonic, OperandType type, String name) {
+		this(opcode, mnemonic, new OperandType[] { type }, new String[] { name });
+	}
+
+	private Opcode(int opcode, String mnemonic, OperandType type1, String name1, OperandType type2, String name2) {
+		this(opcode, mnemonic, new OperandType[] { type1, type2 }, new String[] { name1, name2 });
+	}
+
+	private Opcode(int opcode, String mnemonic, OperandType type1, String name1, OperandType type2, String name2,
+			OperandType type3, String name3) {
+		this(opcode, mnemonic, new OperandType[] { type1, type2, type3 }, new String[] { name1, name2, name3 });
+	}
+
+	private Opcode(int opcode, String mnemonic, OperandType[] operandTypes, String[] operandNames) {
+		this(opcode, mnemonic, 1 + getSize(operandTypes), operandTypes, operandNames);
+	}
+
+	private Opcode(int opcode, String mnemonic, int size, OperandType[] operandTypes, String[] operandNames) {
+		this.opcode = opcode;
+		this.mnemonic = mnemonic;
+		this.size = size;
+		this.operandTypes = operandTypes;
+		this.operandNames = operandNames;
+	}
+
+	private static int getSize(OperandType[] operandTypes) {
+		int size = 0;
+		for (OperandType operandType : operandTypes) {
+			size += operandType.getSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the value of the opcode.
+	 *
+	 * @return the value between {@code 0} and {@code 255}
+	 */
+	public int getOpcode() {
+		return opcode;
+	}
+
+	public String getMnemonic() {
+		return mnemonic;
+	}
+
+	/**
+	 * Returns the size of instructions with this opcode in bytes including all
+	 * operands.
+	 *
+	 * @return the size or {@code -1} if the size is variable
+	 *         ({@code tableswitch}, {@code lookupswitch} and {@code wide})
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the types of the operands of an instruction of fixed size in
+	 * the order they appear in the byte code.
+	 *
+	 * @return the types of the operands
+	 */
+	public OperandType[] getOperandTypes() {
+		return operandTypes.clone();
+	}
+
+	/**
+	 * Returns the names of the operands of an instruction of fixed size. The
+	 * name of a {@link OperandType#ZERO} operand is its value.
+	 *
+	 * @return the names of the operands
+	 */
+	public String[] getOperandNames() {
+		return operandNames.clone();
+	}
+
+	/**
+	 * Checks if this is one of the {@code invoke} instructions, including
+	 * {@code invokedynamic}. The first operand is the constant pool index of
+	 * the method reference (or the call site specifier).
+	 *
+	 * @return {@code true} for invocations
+	 */
+	public boolean isInvoke() {
+		return opcode >= 0xb6 && opcode <= 0xba;
+	}
+
+	/**
+	 * Checks if this is {@code getstatic}, {@code putstatic},
+	 * {@code getfield} or {@code putfield}. The first operand is the constant
+	 * pool index of the field reference.
+	 *
+	 * @return {@code true} for field accesses
+	 */
+	public boolean isFieldAccess() {
+		return opcode >= 0xb2 && opcode <= 0xb5;
+	}
+
+	/**
+	 * Checks if this is a conditional or unconditional jump with a single
+	 * branch offset, i.e. the {@code if} instructions, {@code goto},
+	 * {@code jsr} and their wide variants. {@code tableswitch} and
+	 * {@code lookupswitch} are not branches in this sense, see
+	 * {@link #isSwitch()}.
+	 *
+	 * @return {@code true} for branches
+	 */
+	public boolean isBranch() {
+		return opcode >= 0x99 && opcode <= 0xa8 || opcode >= 0xc6 && opcode <= 0xc9;
+	}
+
+	/**
+	 * Checks if this is {@code goto}, {@code goto_w}, {@code jsr} or
+	 * {@code jsr_w}, i.e. a branch that is always taken.
+	 *
+	 * @return {@code true} for unconditional branches
+	 */
+	public boolean isUnconditionalBranch() {
+		return opcode == 0xa7 || opcode == 0xa8 || opcode == 0xc8 || opcode == 0xc9;
+	}
+
+	/**
+	 * Checks if this is {@code tableswitch} or {@code lookupswitch}.
+	 *
+	 * @return {@code true} for switches
+	 */
+	public boolean isSwitch() {
+		return opcode == 0xaa || opcode == 0xab;
+	}
+
+	/**
+	 * Checks if this is one of the {@code return} instructions.
+	 *
+	 * @return {@code true} for returns
+	 */
+	public boolean isReturn() {
+		return opcode >= 0xac && opcode <= 0xb1;
+	}
+
+	/**
+	 * Checks if the first operand of this instruction is an index into the
+	 * constant pool.
+	 *
+	 * @return {@code true} if the instruction references the constant pool
+	 */
+	public boolean referencesConstantPool() {
+		switch (this) {
+		case LDC:
+		case LDC_W:
+		case LDC2_W:
+		case NEW:
+		case ANEWARRAY:
+		case CHECKCAST:
+		case INSTANCEOF:
+		case MULTIANEWARRAY:
+			return true;
+		default:
+			return isFieldAccess() || isInvoke();
+		}
+	}
+
+	/**
+	 * Returns the {@code Opcode} with the given value.
+	 *
+	 * @param opcode
+	 *            the value of the opcode
+	 * @return the {@code Opcode} or {@code null} if the value is not a valid
+	 *         opcode
+	 */
+	public static Opcode getByOpcode(int opcode) {
+		return opcode >= 0 && opcode < BY_OPCODE.length ? BY_OPCODE[opcode] : null;
+	}
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.instructions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.google.common.base.Predicate;
+
+/**
+ * An immutable set of opcodes that is checked with a single array access.
+ * It is used to skip instructions that are of no interest without decoding
+ * them, see {@link InstructionCursor#next(OpcodeFilter)}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public final class OpcodeFilter {
+
+	public static final OpcodeFilter ALL = of(EnumSet.allOf(Opcode.class));
+
+	public static final OpcodeFilter INVOKES = matching(new Predicate<Opcode>() {
+		@Override
+		public boolean apply(Opcode opcode) {
+			return opcode.isInvoke();
+		}
+	});
+
+	public static final OpcodeFilter FIELD_ACCESSES = matching(new Predicate<Opcode>() {
+		@Override
+		public boolean apply(Opcode opcode) {
+			return opcode.isFieldAccess();
+		}
+	});
+
+	public static final OpcodeFilter BRANCHES = matching(new Predicate<Opcode>() {
+		@Override
+		public boolean apply(Opcode opcode) {
+			return opcode.isBranch() || opcode.isSwitch();
+		}
+	});
+
+	public static final OpcodeFilter RETURNS = matching(new Predicate<Opcode>() {
+		@Override
+		public boolean apply(Opcode opcode) {
+			return opcode.isReturn();
+		}
+	});
+
+	public static final OpcodeFilter CONSTANT_POOL_REFERENCES = matching(new Predicate<Opcode>() {
+		@Override
+		public boolean apply(Opcode opcode) {
+			return opcode.referencesConstantPool();
+		}
+	});
+
+	/**
+	 * Whether an opcode is contained, indexed by opcode.
+	 */
+	private final boolean[] matches;
+
+	private OpcodeFilter(boolean[] matches) {
+		this.matches = matches;
+	}
+
+	/**
+	 * Checks if the filter contains the given opcode.
+	 *
+	 * @param opcode
+	 *            the value of the opcode
+	 * @return {@code true} if the opcode is contained
+	 */
+	public boolean matches(int opcode) {
+		return matches[opcode & 0xff];
+	}
+
+	/**
+	 * Checks if the filter contains the given opcode.
+	 *
+	 * @param opcode
+	 *            the opcode
+	 * @return {@code true} if the opcode is contained
+	 */
+	public boolean matches(Opcode opcode) {
+		return matches[opcode.getOpcode()];
+	}
+
+	/**
+	 * Returns the opcodes of this filter.
+	 *
+	 * @return a new set with the opcodes
+	 */
+	public Set<Opcode> getOpcodes() {
+		Set<Opcode> opcodes = EnumSet.noneOf(Opcode.class);
+		for (Opcode opcode : Opcode.values()) {
+			if (matches[opcode.getOpcode()]) {
+				opcodes.add(opcode);
+			}
+		}
+		return opcodes;
+	}
+
+	/**
+	 * Creates a filter that contains the opcodes of this and the given filter.
+	 *
+	 * @param other
+	 *            the other filter
+	 * @return the union of both filters
+	 */
+	public OpcodeFilter or(OpcodeFilter other) {
+		boolean[] union = new boolean[256];
+		for (int i = 0; i < union.length; i++) {
+			union[i] = matches[i] || other.matches[i];
+		}
+		return new OpcodeFilter(union);
+	}
+
+	/**
+	 * Creates a filter of the given opcodes.
+	 *
+	 * @param opcodes
+	 *            the opcodes
+	 * @return the filter
+	 */
+	public static OpcodeFilter of(Collection<Opcode> opcodes) {
+		boolean[] matches = new boolean[256];
+		for (Opcode opcode : opcodes) {
+			matches[opcode.getOpcode()] = true;
+		}
+		return new OpcodeFilter(matches);
+	}
+
+	/**
+	 * Creates a filter of the given opcodes.
+	 *
+	 * @param first
+	 *            an opcode
+	 * @param rest
+	 *            more opcodes
+	 * @return the filter
+	 */
+	public static OpcodeFilter of(Opcode first, Opcode... rest) {
+		return of(EnumSet.of(first, rest));
+	}
+
+	private static OpcodeFilter matching(Predicate<Opcode> predicate) {
+		boolean[] matches = new boolean[256];
+		for (Opcode opcode : Opcode.values()) {
+			matches[opcode.getOpcode()] = predicate.apply(opcode);
+		}
+		return new OpcodeFilter(matches);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof OpcodeFilter && Arrays.equals(matches, ((OpcodeFilter) obj).matches);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(matches);
+	}
+
+	@Override
+	public String toString() {
+		return getOpcodes().toString();
+	}
+
+}
@@ -24,45 +24,40 @@
  * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
  * POSSIBILITY OF SUCH DAMAGE.
  */
-package com.github.musikk.classreader.util;
+package com.github.musikk.classreader.instructions;
 
-public class InstructionProperty {
-
-	private final int opcode;
-	private final String mnemonic;
-	private final int size;
-
-	private final String[] types;
-	private final String[] names;
+/**
+ * The types of the operands of instructions of fixed size.
+ *
+ * @author Werner Hahn
+ *
+ */
+public enum OperandType {
 
-	public InstructionProperty(int opcode, String mnemonic, int size,
-			String[] types, String[] names) {
-		this.opcode = opcode;
-		this.mnemonic = mnemonic;
-		this.size = size;
+	BYTE(1),
+	UNSIGNED_BYTE(1),
+	SHORT(2),
+	UNSIGNED_SHORT(2),
+	INT(4),
 
-		this.types = types;
-		this.names = names;
-	}
+	/**
+	 * A byte that must be zero. It is not exposed as an operand.
+	 */
+	ZERO(1);
 
-	public int getOpcode() {
-		return opcode;
-	}
+	private final int size;
 
-	public String getMnemonic() {
-		return mnemonic;
+	private OperandType(int size) {
+		this.size = size;
 	}
 
+	/**
+	 * Returns the size of the operand in bytes.
+	 *
+	 * @return the size in bytes
+	 */
 	public int getSize() {
 		return size;
 	}
 
-	public String[] getTypes() {
-		return types;
-	}
-
-	public String[] getNames() {
-		return names;
-	}
-
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.instructions;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The instructions of a method packed into parallel primitive arrays. This
+ * is a compact alternative to a map of {@link Instruction} objects: every
+ * instruction takes an offset, an opcode and the values of its operands (in
+ * the same order as {@link Instruction#getOperands()}), but no objects.
+ * <p>
+ * Instructions are addressed by their position in the method, i.e. the
+ * {@code i}-th instruction, or visited with a {@link Cursor}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class PackedInstructions {
+
+	private final int codeLength;
+
+	private final int size;
+
+	/**
+	 * The offsets of the instructions from the start of the code in ascending
+	 * order.
+	 */
+	private final int[] offsets;
+
+	private final byte[] opcodes;
+
+	/**
+	 * The index of the first operand of every instruction in
+	 * {@link #operands}. The operands of the {@code i}-th instruction are
+	 * between {@code operandStarts[i]} (inclusive) and
+	 * {@code operandStarts[i + 1]} (exclusive).
+	 */
+	private final int[] operandStarts;
+
+	private final int[] operands;
+
+	private PackedInstructions(int codeLength, int size, int[] offsets, byte[] opcodes, int[] operandStarts,
+			int[] operands) {
+		this.codeLength = codeLength;
+		this.size = size;
+		this.offsets = offsets;
+		this.opcodes = opcodes;
+		this.operandStarts = operandStarts;
+		this.operands = operands;
+	}
+
+	/**
+	 * Returns the number of instructions.
+	 *
+	 * @return the number of instructions
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the offset of the {@code i}-th instruction from the start of the
+	 * code.
+	 *
+	 * @param i
+	 *            the position of the instruction
+	 * @return the offset
+	 */
+	public int getOffset(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Returns the opcode of the {@code i}-th instruction.
+	 *
+	 * @param i
+	 *            the position of the instruction
+	 * @return the opcode
+	 */
+	public int getOpcode(int i) {
+		return opcodes[i] & 0xff;
+	}
+
+	/**
+	 * Returns the size of the {@code i}-th instruction in bytes including all
+	 * operands.
+	 *
+	 * @param i
+	 *            the position of the instruction
+	 * @return the size in bytes
+	 */
+	public int getLength(int i) {
+		return (i + 1 < size ? offsets[i + 1] : codeLength) - offsets[i];
+	}
+
+	/**
+	 * Returns the number of operands of the {@code i}-th instruction.
+	 *
+	 * @param i
+	 *            the position of the instruction
+	 * @return the number of operands
+	 */
+	public int getOperandCount(int i) {
+		return operandStarts[i + 1] - operandStarts[i];
+	}
+
+	/**
+	 * Returns an operand of the {@code i}-th instruction.
+	 *
+	 * @param i
+	 *            the position of the instruction
+	 * @param operand
+	 *            the position of the operand
+	 * @return the value of the operand
+	 */
+	public int getOperand(int i, int operand) {
+		if (operand < 0 || operand >= getOperandCount(i)) {
+			throw new IndexOutOfBoundsException("operand " + operand + " of instruction " + i);
+		}
+		return operands[operandStarts[i] + operand];
+	}
+
+	/**
+	 * Finds the instruction at the given offset.
+	 *
+	 * @param offset
+	 *            the offset from the start of the code
+	 * @return the position of the instruction or {@code -1} if no instruction
+	 *         starts at the offset
+	 */
+	public int indexOf(int offset) {
+		int i = Arrays.binarySearch(offsets, 0, size, offset);
+		return i >= 0 ? i : -1;
+	}
+
+	/**
+	 * Returns a cursor that is positioned before the first instruction.
+	 *
+	 * @return a new cursor
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * A cursor over the instructions. It starts before the first instruction
+	 * and is moved with {@link #next()}.
+	 */
+	public class Cursor {
+
+		private int i = -1;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Moves to the next instruction.
+		 *
+		 * @return {@code false} if there is no next instruction
+		 */
+		public boolean next() {
+			if (i < size) {
+				i++;
+			}
+			return i < size;
+		}
+
+		/**
+		 * Moves to the instruction at the given offset. The next call to
+		 * {@link #next()} moves to the instruction following it.
+		 *
+		 * @param offset
+		 *            the offset from the start of the code
+		 * @return {@code false} if no instruction starts at the offset, in
+		 *         which case the cursor is not moved
+		 */
+		public boolean seek(int offset) {
+			int index = indexOf(offset);
+			if (index < 0) {
+				return false;
+			}
+			i = index;
+			return true;
+		}
+
+		public int index() {
+			return current();
+		}
+
+		public int offset() {
+			return offsets[current()];
+		}
+
+		public int opcode() {
+			return opcodes[current()] & 0xff;
+		}
+
+		public int length() {
+			return getLength(current());
+		}
+
+		public int operandCount() {
+			return getOperandCount(current());
+		}
+
+		public int operand(int operand) {
+			return getOperand(current(), operand);
+		}
+
+		private int current() {
+			if (i < 0 || i >= size) {
+				throw new NoSuchElementException();
+			}
+			return i;
+		}
+
+	}
+
+	/**
+	 * Decodes the code of a method.
+	 *
+	 * @param code
+	 *            the array containing the code
+	 * @param start
+	 *            the index of the first byte of the code
+	 * @param codeLength
+	 *            the length of the code in bytes
+	 * @return the packed instructions
+	 */
+	public static PackedInstructions getPackedInstructions(byte[] code, int start, int codeLength) {
+		// every instruction takes at least one byte
+		int[] offsets = new int[codeLength];
+		byte[] opcodes = new byte[codeLength];
+		int[] operandStarts = new int[codeLength + 1];
+		int[] operands = new int[Math.max(codeLength / 2, 4)];
+
+		int size = 0;
+		int operandCount = 0;
+		InstructionCursor cursor = new InstructionCursor(code, start, codeLength);
+		while (cursor.next()) {
+			int instructionOperandCount = cursor.operandCount();
+
+			offsets[size] = cursor.offset();
+			opcodes[size] = (byte) cursor.opcode();
+			operandStarts[size] = operandCount;
+			if (operandCount + instructionOperandCount > operands.length) {
+				operands = Arrays.copyOf(operands, Math.max(operands.length * 2, operandCount
+						+ instructionOperandCount));
+			}
+			for (int i = 0; i < instructionOperandCount; i++) {
+				operands[operandCount++] = cursor.operand(i);
+			}
+
+			size++;
+		}
+		operandStarts[size] = operandCount;
+
+		return new PackedInstructions(codeLength, size, Arrays.copyOf(offsets, size), Arrays.copyOf(opcodes, size),
+				Arrays.copyOf(operandStarts, size + 1), Arrays.copyOf(operands, operandCount));
+	}
+
+}
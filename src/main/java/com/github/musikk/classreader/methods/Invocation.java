@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.methods;
+
+import com.github.musikk.classreader.constantpool.MethodReference;
+import com.github.musikk.classreader.instructions.Opcode;
+
+/**
+ * A call site in the code of a method.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class Invocation {
+
+	private final int offset;
+	private final Opcode opcode;
+	private final MethodReference target;
+
+	public Invocation(int offset, Opcode opcode, MethodReference target) {
+		this.offset = offset;
+		this.opcode = opcode;
+		this.target = target;
+	}
+
+	/**
+	 * Returns the offset of the invoke instruction from the start of the code.
+	 *
+	 * @return the offset
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	public Opcode getOpcode() {
+		return opcode;
+	}
+
+	public MethodReference getTarget() {
+		return target;
+	}
+
+	/**
+	 * Returns the internal name of the class declaring the invoked method.
+	 *
+	 * @return the owner or {@code null} for {@code invokedynamic}
+	 */
+	public String getOwner() {
+		return target.getOwner();
+	}
+
+	public String getName() {
+		return target.getName();
+	}
+
+	public String getDescriptor() {
+		return target.getDescriptor();
+	}
+
+	@Override
+	public String toString() {
+		return offset + ": " + opcode.getMnemonic() + " " + target;
+	}
+
+}
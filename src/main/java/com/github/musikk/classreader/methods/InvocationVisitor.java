@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.methods;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.constantpool.MethodReference;
+import com.github.musikk.classreader.instructions.Opcode;
+
+/**
+ * An {@code InvocationVisitor} receives the call sites of the methods of a
+ * class from {@link ClassFile#acceptInvocations(InvocationVisitor)} or
+ * {@link MethodInfo#acceptInvocations(com.github.musikk.classreader.constantpool.ConstantPool, InvocationVisitor)}.
+ * Only the invoke instructions are decoded and every referenced method is
+ * resolved once per class, so no objects are created per call site.
+ *
+ * @author Werner Hahn
+ *
+ */
+public abstract class InvocationVisitor {
+
+	/**
+	 * Called before the call sites of a method are visited.
+	 *
+	 * @param method
+	 *            the method
+	 * @return {@code true} to visit the call sites of the method,
+	 *         {@code false} to skip it
+	 */
+	public boolean visitMethod(MethodInfo method) {
+		return true;
+	}
+
+	/**
+	 * Called for every invoke instruction in the order of the code.
+	 *
+	 * @param offset
+	 *            the offset of the instruction from the start of the code
+	 * @param opcode
+	 *            one of the invoke opcodes
+	 * @param target
+	 *            the invoked method; its owner is {@code null} for
+	 *            {@code invokedynamic}
+	 */
+	public abstract void visitInvocation(int offset, Opcode opcode, MethodReference target);
+
+}
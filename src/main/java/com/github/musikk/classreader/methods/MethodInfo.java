@@ -26,12 +26,21 @@
  */
 package com.github.musikk.classreader.methods;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.List;
 
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.ClassReaderContext;
 import com.github.musikk.classreader.Modifier;
+import com.github.musikk.classreader.attributes.AttributeType;
 import com.github.musikk.classreader.attributes.Attributes;
+import com.github.musikk.classreader.attributes.CodeAttribute;
+import com.github.musikk.classreader.constantpool.ConstantPool;
+import com.github.musikk.classreader.constantpool.MethodReference;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+import com.github.musikk.classreader.instructions.Opcode;
+import com.github.musikk.classreader.instructions.OpcodeFilter;
 
 public class MethodInfo {
 
@@ -102,6 +111,48 @@ public class MethodInfo {
 		return attributes;
 	}
 
+	/**
+	 * Returns the call sites of this method. Only the invoke instructions are
+	 * decoded.
+	 *
+	 * @param constantPool
+	 *            the constant pool of the class
+	 * @return the call sites in the order of the code; empty for abstract and
+	 *         native methods
+	 */
+	public List<Invocation> getInvocations(ConstantPool constantPool) {
+		final List<Invocation> invocations = new ArrayList<>();
+		acceptInvocations(constantPool, new InvocationVisitor() {
+			@Override
+			public void visitInvocation(int offset, Opcode opcode, MethodReference target) {
+				invocations.add(new Invocation(offset, opcode, target));
+			}
+		});
+		return invocations;
+	}
+
+	/**
+	 * Passes the call sites of this method to the given visitor without
+	 * creating any objects for them. {@link InvocationVisitor#visitMethod(MethodInfo)}
+	 * is not called.
+	 *
+	 * @param constantPool
+	 *            the constant pool of the class
+	 * @param visitor
+	 *            the visitor
+	 */
+	public void acceptInvocations(ConstantPool constantPool, InvocationVisitor visitor) {
+		CodeAttribute codeAttribute = (CodeAttribute) attributes.getAttributeInfo(constantPool, AttributeType.CODE);
+		if (codeAttribute == null) {
+			return;
+		}
+		InstructionCursor cursor = codeAttribute.getCode().getInstructionCursor();
+		while (cursor.next(OpcodeFilter.INVOKES)) {
+			visitor.visitInvocation(cursor.offset(), Opcode.getByOpcode(cursor.opcode()),
+					constantPool.getMethodReference(cursor.operand(0)));
+		}
+	}
+
 	protected static MethodInfo getMethodInfo(ClassReaderContext ctxt) {
 		ClassReader reader = ctxt.getClassReader();
 
@@ -26,16 +26,12 @@
  */
 package com.github.musikk.classreader.util;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import com.github.musikk.classreader.ClassReader;
 import com.github.musikk.classreader.instructions.Instruction;
 import com.github.musikk.classreader.instructions.InstructionFactory;
+import com.github.musikk.classreader.instructions.Opcode;
 import com.github.musikk.classreader.instructions.Operand;
+import com.github.musikk.classreader.instructions.OperandType;
 
 public class InstructionReader {
 
@@ -43,45 +39,64 @@ public class InstructionReader {
 	private final static int OPCODE_TABLESWITCH = 0xaa;
 	private final static int OPCODE_WIDE = 0xc4;
 
-	private final static List<Integer> OPCODE_WIDE_FORMAT_1;
-	private final static List<Integer> OPCODE_WIDE_FORMAT_2;
+	private final static Operand[] NO_OPERANDS = new Operand[0];
+
+	/**
+	 * The maximum length of the code of a method in bytes, which bounds the
+	 * number of entries of a switch.
+	 */
+	private final static int MAX_CODE_LENGTH = 65535;
+
+	/**
+	 * The opcodes that can be modified by {@code wide} and only have an index,
+	 * indexed by opcode.
+	 */
+	private final static boolean[] OPCODE_WIDE_FORMAT_1;
+
+	/**
+	 * The opcodes that can be modified by {@code wide} and have an index and a
+	 * constant, indexed by opcode.
+	 */
+	private final static boolean[] OPCODE_WIDE_FORMAT_2;
 
 	static {
-		OPCODE_WIDE_FORMAT_1 = Arrays.asList(0x15 /* iload */, 0x18 /* fload */,
+		OPCODE_WIDE_FORMAT_1 = opcodeSet(0x15 /* iload */, 0x17 /* fload */,
 				0x19 /* aload */, 0x16 /* lload */, 0x18 /* dload */,
 				0x36 /* istore */, 0x38 /* fstore */, 0x3a /* astore */,
 				0x37 /* lstore */, 0x39 /* dstore */, 0xa9 /* ret */);
-		OPCODE_WIDE_FORMAT_2 = Arrays.asList(0x84 /* iinc */);
+		OPCODE_WIDE_FORMAT_2 = opcodeSet(0x84 /* iinc */);
 	}
 
-	public static Map<Integer, InstructionFactory> loadInstructionFactories() {
-
-		InstructionProperties instructionProperties = new InstructionProperties();
-
-		Map<Integer, InstructionFactory> instructionFactories = new HashMap<Integer, InstructionFactory>(
-				instructionProperties.getNumberOfInstructions());
+	private static boolean[] opcodeSet(int... opcodes) {
+		boolean[] set = new boolean[256];
+		for (int opcode : opcodes) {
+			set[opcode] = true;
+		}
+		return set;
+	}
 
-		for (InstructionProperty instructionProperty : instructionProperties) {
+	/**
+	 * Creates the {@link InstructionFactory}s for all instructions.
+	 *
+	 * @return the factories indexed by opcode; unused opcodes map to
+	 *         {@code null}
+	 */
+	public static InstructionFactory[] loadInstructionFactories() {
 
-			int opcode = instructionProperty.getOpcode();
-			String mnemonic = instructionProperty.getMnemonic();
-			int instructionSize = instructionProperty.getSize();
+		InstructionFactory[] instructionFactories = new InstructionFactory[256];
 
-			String[] types = instructionProperty.getTypes();
-			String[] names = instructionProperty.getNames();
+		for (Opcode opcode : Opcode.values()) {
 
 			InstructionFactory instructionFactory = null;
 
-			if (instructionSize == -1) {
-				instructionFactory = createSpecialInstructionFactory(opcode,
-						mnemonic);
+			if (opcode.getSize() == -1) {
+				instructionFactory = createSpecialInstructionFactory(opcode.getOpcode(),
+						opcode.getMnemonic());
 			} else {
-				instructionFactory = createRegularInstructionFactory(opcode,
-						mnemonic, instructionSize, types, names);
+				instructionFactory = createRegularInstructionFactory(opcode);
 			}
 
-			instructionFactories.put(Integer.valueOf(opcode),
-					instructionFactory);
+			instructionFactories[opcode.getOpcode()] = instructionFactory;
 
 		}
 
@@ -101,25 +116,27 @@ public class InstructionReader {
 				int padding = ensureZeroPadding(classReader, methodOffset, 4);
 				size += padding;
 
-				List<Operand> operands = new ArrayList<>();
-
 				int _default = classReader.readInt();
 				int npairs = classReader.readInt();
 				size += 8;
+				if (npairs < 0 || npairs > MAX_CODE_LENGTH / 8) {
+					throw new RuntimeException("illegal number of lookupswitch pairs " + npairs
+							+ " at offset " + methodOffset);
+				}
 
-				operands.add(new Operand("default", _default));
-				operands.add(new Operand("npairs", npairs));
+				Operand[] operands = new Operand[2 + 2 * npairs];
+				operands[0] = new Operand("default", _default);
+				operands[1] = new Operand("npairs", npairs);
 
 				for (int i = 0; i < npairs; i++) {
 					int match = classReader.readInt();
 					int offset = classReader.readInt();
-					operands.add(new Operand("match", match));
-					operands.add(new Operand("offset", offset));
+					operands[2 + 2 * i] = new Operand("match", match);
+					operands[3 + 2 * i] = new Operand("offset", offset);
 					size += 8;
 				}
 
-				return new Instruction(opcode, mnemonic, size, operands
-						.toArray(new Operand[] {}));
+				return new Instruction(opcode, mnemonic, size, operands);
 			}
 		};
 	}
@@ -136,25 +153,29 @@ public class InstructionReader {
 				int padding = ensureZeroPadding(classReader, methodOffset, 4);
 				size += padding;
 
-				List<Operand> operands = new ArrayList<>();
-
 				int defaultByte = classReader.readInt();
 				int lowByte = classReader.readInt();
 				int highByte = classReader.readInt();
+				long jumpCount = (long) highByte - lowByte + 1;
+				if (jumpCount < 1 || jumpCount > MAX_CODE_LENGTH / 4) {
+					throw new RuntimeException("illegal tableswitch range " + lowByte + " to " + highByte
+							+ " at offset " + methodOffset);
+				}
+				int offsetCount = (int) jumpCount;
 
-				operands.add(new Operand("defaultbyte", defaultByte));
-				operands.add(new Operand("lowByte", lowByte));
-				operands.add(new Operand("highByte", highByte));
+				Operand[] operands = new Operand[3 + offsetCount];
+				operands[0] = new Operand("defaultbyte", defaultByte);
+				operands[1] = new Operand("lowByte", lowByte);
+				operands[2] = new Operand("highByte", highByte);
 				size += 12;
 
-				for (int i = 0; i < highByte - lowByte + 1; i++) {
+				for (int i = 0; i < offsetCount; i++) {
 					int offset = classReader.readInt();
-					operands.add(new Operand("offset", offset));
+					operands[3 + i] = new Operand("offset", offset);
 					size += 4;
 				}
 
-				return new Instruction(opcode, mnemonic, size, operands
-						.toArray(new Operand[] {}));
+				return new Instruction(opcode, mnemonic, size, operands);
 			}
 		};
 	}
@@ -166,32 +187,24 @@ public class InstructionReader {
 			@Override
 			public Instruction getInstruction(ClassReader classReader, int methodOffset) {
 
-				int size = 1;
-
-				List<Operand> operands = new ArrayList<>();
-
 				int affectedOpcode = classReader.readUnsignedByte();
 
 				int index = classReader.readUnsignedShort();
 
-				operands.add(new Operand("opcode", affectedOpcode));
-				size++;
-				operands.add(new Operand("index", index));
-				size += 2;
-
-				if (OPCODE_WIDE_FORMAT_1.contains(affectedOpcode)) {
-					// need nothing more
-				} else if (OPCODE_WIDE_FORMAT_2.contains(affectedOpcode)) {
+				if (OPCODE_WIDE_FORMAT_1[affectedOpcode]) {
+					return new Instruction(opcode, mnemonic, 4, new Operand[] {
+							new Operand("opcode", affectedOpcode),
+							new Operand("index", index) });
+				} else if (OPCODE_WIDE_FORMAT_2[affectedOpcode]) {
 					int constant = classReader.readUnsignedShort();
-					operands.add(new Operand("constant", constant));
-					size += 2;
+					return new Instruction(opcode, mnemonic, 6, new Operand[] {
+							new Operand("opcode", affectedOpcode),
+							new Operand("index", index),
+							new Operand("constant", constant) });
 				} else {
 					throw new RuntimeException(
-							"illegal opcode for wide instruction: " + opcode);
+							"illegal opcode for wide instruction: " + affectedOpcode);
 				}
-
-				return new Instruction(opcode, mnemonic, size, operands
-						.toArray(new Operand[] {}));
 			}
 		};
 	}
@@ -228,76 +241,95 @@ public class InstructionReader {
 		return padding;
 	}
 
-	private static InstructionFactory createRegularInstructionFactory(
-			final int opcode, final String mnemonic, final int instructionSize,
-			final String[] types, final String[] names) {
+	private static InstructionFactory createRegularInstructionFactory(Opcode opcode) {
 
-		return new InstructionFactory() {
-			@Override
-			public Instruction getInstruction(ClassReader classReader, int methodOffset) {
-				return new Instruction(opcode, mnemonic, instructionSize,
-						getOperands(types, names, classReader));
-			}
-		};
-
-	}
-
-	private static Operand[] getOperands(String[] types, String[] names,
-			ClassReader classReader) {
-
-		if (types == null) {
-			return new Operand[] {};
-		}
-
-		List<Operand> operands = new ArrayList<>();
-
-		for (int i = 0; i < types.length; i++) {
-			Operand operand = getOperand(types[i], names[i], classReader);
-			if (operand == null) {
-				continue;
-			} else {
-				operands.add(operand);
-			}
+		if (opcode.getOperandTypes().length == 0) {
+			// instructions without operands are immutable and can be shared
+			final Instruction instruction = new Instruction(opcode.getOpcode(), opcode.getMnemonic(),
+					opcode.getSize(), NO_OPERANDS);
+			return new InstructionFactory() {
+				@Override
+				public Instruction getInstruction(ClassReader classReader, int methodOffset) {
+					return instruction;
+				}
+			};
 		}
 
-		return operands.toArray(new Operand[] {});
+		return new RegularInstructionFactory(opcode);
 
 	}
 
-	private static Operand getOperand(String type, String name,
-			ClassReader classReader) {
-
-		int value = 0;
-		char typeChar = type.charAt(0);
-
-		switch (typeChar) {
-		case 'b':
-			value = classReader.readByte();
-			break;
-		case 'B':
-			value = classReader.readUnsignedByte();
-			break;
-		case 's':
-			value = classReader.readShort();
-			break;
-		case 'S':
-			value = classReader.readUnsignedShort();
-			break;
-		case 'i':
-			value = classReader.readInt();
-			break;
-		case 'c':
-		case 'C':
-			if (classReader.readByte() != Integer.parseInt(name)) {
-				throw new RuntimeException("expected constant value " + name
-						+ " but found " + value + " instead");
+	/**
+	 * Creates instructions of a fixed size. The layout of the operands is
+	 * resolved once so that creating an instruction only reads the operands.
+	 */
+	private static class RegularInstructionFactory implements InstructionFactory {
+
+		private final int opcode;
+		private final String mnemonic;
+		private final int instructionSize;
+
+		private final OperandType[] types;
+
+		/**
+		 * The name of every operand.
+		 */
+		private final String[] names;
+
+		/**
+		 * The number of operands that are not {@link OperandType#ZERO}.
+		 */
+		private final int operandCount;
+
+		RegularInstructionFactory(Opcode opcode) {
+			this.opcode = opcode.getOpcode();
+			this.mnemonic = opcode.getMnemonic();
+			this.instructionSize = opcode.getSize();
+			this.types = opcode.getOperandTypes();
+			this.names = opcode.getOperandNames();
+
+			int operandCount = 0;
+			for (OperandType type : types) {
+				if (type != OperandType.ZERO) {
+					operandCount++;
+				}
 			}
-			return null;
-		default:
-			throw new RuntimeException("unexpected type: " + type);
+			this.operandCount = operandCount;
 		}
 
-		return new Operand(name, value);
+		@Override
+		public Instruction getInstruction(ClassReader classReader, int methodOffset) {
+			Operand[] operands = new Operand[operandCount];
+			int operandIndex = 0;
+			for (int i = 0; i < types.length; i++) {
+				int value;
+				switch (types[i]) {
+				case BYTE:
+					value = classReader.readByte();
+					break;
+				case UNSIGNED_BYTE:
+					value = classReader.readUnsignedByte();
+					break;
+				case SHORT:
+					value = classReader.readShort();
+					break;
+				case UNSIGNED_SHORT:
+					value = classReader.readUnsignedShort();
+					break;
+				case INT:
+					value = classReader.readInt();
+					break;
+				default:
+					byte b = classReader.readByte();
+					if (b != 0) {
+						throw new RuntimeException("expected constant value 0 but found " + b + " instead");
+					}
+					continue;
+				}
+				operands[operandIndex++] = new Operand(names[i], value);
+			}
+			return new Instruction(opcode, mnemonic, instructionSize, operands);
+		}
 
 	}
 
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the modified UTF-8 decoder of {@link ByteBufferClassReader} against
+ * {@link DataInputStream#readUTF()}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ByteBufferClassReaderTest {
+
+	@Test
+	public void decodesLikeDataInputStream() throws IOException {
+		assertDecodes("");
+		assertDecodes("java/lang/Object");
+		// the null character is encoded in two bytes
+		assertDecodes("a\u0000b");
+		assertDecodes("\u00e4\u00f6\u00fc\u00df \u20ac \u65e5\u672c");
+		// supplementary characters are encoded as surrogate pairs of three bytes each
+		assertDecodes("\ud83d\ude00 \ud800\udc00");
+		assertDecodes("\uffff\u0080\u07ff\u0800");
+
+		Random random = new Random(42);
+		for (int i = 0; i < 1000; i++) {
+			char[] chars = new char[random.nextInt(100)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = (char) random.nextInt(Character.MAX_VALUE + 1);
+			}
+			assertDecodes(new String(chars));
+		}
+	}
+
+	@Test
+	public void rejectsMalformedInputLikeDataInputStream() throws IOException {
+		assertRejects(new byte[] { 0, 1, (byte) 0x80 });
+		assertRejects(new byte[] { 0, 1, (byte) 0xc3 });
+		assertRejects(new byte[] { 0, 2, (byte) 0xe2, (byte) 0x82 });
+		assertRejects(new byte[] { 0, 2, (byte) 0xc3, 0x41 });
+		assertRejects(new byte[] { 0, 1, (byte) 0xf0 });
+	}
+
+	private static void assertDecodes(String s) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DataOutputStream(out).writeUTF(s);
+		byte[] bytes = out.toByteArray();
+
+		String expected = new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+		ByteBufferClassReader reader = new ByteBufferClassReader(bytes, 0, bytes.length);
+		assertEquals(expected, reader.readUtf8String());
+		assertEquals(bytes.length, reader.getPosition());
+	}
+
+	private static void assertRejects(byte[] bytes) throws IOException {
+		try {
+			new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+			fail("DataInputStream accepts the input");
+		} catch (UTFDataFormatException e) {
+			// expected
+		}
+		try {
+			new ByteBufferClassReader(bytes, 0, bytes.length).readUtf8String();
+			fail("ByteBufferClassReader accepts the input");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Tests {@link CachingClassFileCollection} on top of a collection that counts
+ * its lookups.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class CachingClassFileCollectionTest {
+
+	private static final int CLASS_COUNT = 50;
+
+	private CountingClassFileCollection classFiles;
+	private List<String> classNames;
+	private long totalBytes;
+
+	@Before
+	public void setUp() {
+		classFiles = new CountingClassFileCollection(TestClasses.getClassFiles().subList(0, CLASS_COUNT));
+		classNames = new ArrayList<>(classFiles.getClassNames());
+		for (byte[] bytes : classFiles.classes.values()) {
+			totalBytes += bytes.length;
+		}
+	}
+
+	@Test
+	public void countsHitsAndMisses() {
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, totalBytes);
+		String className = classNames.get(0);
+
+		ClassFile classFile = cache.getClassFile(className);
+		assertNotNull(classFile);
+		assertSame(classFile, cache.getClassFile(className));
+		assertEquals(1, classFiles.classFileLookups);
+
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.hitCount());
+		assertEquals(1, stats.missCount());
+		assertEquals(1, stats.loadCount());
+		assertEquals(0, stats.evictionCount());
+	}
+
+	@Test
+	public void cachesMissingClasses() {
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, totalBytes);
+
+		assertNull(cache.getClassFile("does.not.Exist"));
+		assertNull(cache.getClassFile("does.not.Exist"));
+		assertEquals(1, classFiles.classFileLookups);
+		assertEquals(1, cache.getStats().hitCount());
+		assertEquals(1, cache.getStats().missCount());
+
+		assertNull(cache.getClassFileHeader("does.not.Exist"));
+		assertEquals(0, classFiles.headerLookups);
+	}
+
+	@Test
+	public void keepsAllClassesWithinTheBound() {
+		// the bound is split among the segments of the cache, each one must be
+		// able to hold all classes
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, totalBytes * 4);
+		for (String className : classNames) {
+			cache.getClassFile(className);
+		}
+		for (String className : classNames) {
+			cache.getClassFile(className);
+		}
+		assertEquals(CLASS_COUNT, classFiles.classFileLookups);
+		assertEquals(CLASS_COUNT, cache.getStats().hitCount());
+		assertEquals(0, cache.getStats().evictionCount());
+	}
+
+	@Test
+	public void evictsClassesBeyondTheBound() {
+		long maximumBytes = totalBytes / 2;
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, maximumBytes);
+		for (String className : classNames) {
+			cache.getClassFile(className);
+		}
+		assertTrue(cache.getStats().evictionCount() > 0);
+
+		// a header is served by the cache if and only if its class is cached
+		long cachedBytes = 0;
+		int cachedCount = 0;
+		for (String className : classNames) {
+			int headerLookups = classFiles.headerLookups;
+			assertNotNull(cache.getClassFileHeader(className));
+			if (classFiles.headerLookups == headerLookups) {
+				cachedBytes += classFiles.classes.get(className).length;
+				cachedCount++;
+			}
+		}
+		assertTrue(cachedCount > 0);
+		assertTrue(cachedCount < CLASS_COUNT);
+		assertTrue(cachedBytes + " > " + maximumBytes, cachedBytes <= maximumBytes);
+	}
+
+	@Test
+	public void evictsClassLargerThanTheBound() {
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, 1);
+		String className = classNames.get(0);
+		assertNotNull(cache.getClassFile(className));
+		assertNotNull(cache.getClassFile(className));
+		assertEquals(2, classFiles.classFileLookups);
+		assertEquals(2, cache.getStats().evictionCount());
+	}
+
+	@Test
+	public void readsHeadersWithoutCaching() {
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, totalBytes);
+		String className = classNames.get(0);
+
+		assertEquals(className, cache.getClassFileHeader(className).getClassName());
+		assertEquals(1, classFiles.headerLookups);
+		assertEquals(0, classFiles.classFileLookups);
+
+		cache.getClassFile(className);
+		assertEquals(1, classFiles.classFileLookups);
+		assertEquals(1, cache.getStats().loadCount());
+
+		assertEquals(className, cache.getClassFileHeader(className).getClassName());
+		assertEquals(1, classFiles.headerLookups);
+	}
+
+	@Test
+	public void reloadsAfterInvalidation() {
+		CachingClassFileCollection cache = new CachingClassFileCollection(classFiles, totalBytes);
+		String className = classNames.get(0);
+		cache.getClassFile(className);
+		cache.invalidateAll();
+		cache.getClassFile(className);
+		assertEquals(2, classFiles.classFileLookups);
+	}
+
+	private static class CountingClassFileCollection extends ClassFileCollection {
+
+		private final Map<String, byte[]> classes = new LinkedHashMap<>();
+		private int classFileLookups;
+		private int headerLookups;
+
+		CountingClassFileCollection(List<byte[]> classFiles) {
+			for (byte[] bytes : classFiles) {
+				String className = ClassFile.scanHeader(ByteBuffer.wrap(bytes)).getClassName();
+				classes.put(className, bytes);
+			}
+		}
+
+		@Override
+		public ClassFile getClassFile(String className) {
+			classFileLookups++;
+			byte[] bytes = classes.get(className);
+			return bytes != null ? new ClassFile(bytes, 0, bytes.length) : null;
+		}
+
+		@Override
+		public ClassFileHeader getClassFileHeader(String className) {
+			headerLookups++;
+			byte[] bytes = classes.get(className);
+			return bytes != null ? ClassFile.scanHeader(ByteBuffer.wrap(bytes)) : null;
+		}
+
+		@Override
+		public Collection<String> getClassNames() {
+			return classes.keySet();
+		}
+
+	}
+
+}
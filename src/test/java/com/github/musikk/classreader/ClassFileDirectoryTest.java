@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ClassFileDirectory} with class files written to a temporary
+ * folder.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileDirectoryTest {
+
+	private static final int CLASS_COUNT = 20;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Map<String, byte[]> classes = new HashMap<>();
+
+	@Before
+	public void setUp() throws IOException {
+		List<byte[]> classFiles = TestClasses.getClassFiles();
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			byte[] bytes = classFiles.get(i);
+			String className = ClassFile.scanHeader(ByteBuffer.wrap(bytes)).getClassName();
+			File file = new File(folder.getRoot(), ClassFileCollection.convertClassNameToEntry(className));
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), bytes);
+			classes.put(className, bytes);
+		}
+		// neither class files nor directories of classes
+		Files.write(new File(folder.getRoot(), "README.txt").toPath(), "not a class".getBytes());
+		folder.newFolder("com", "example", "empty.class");
+	}
+
+	@Test
+	public void findsAllClasses() {
+		try (ClassFileDirectory directory = new ClassFileDirectory(folder.getRoot())) {
+			assertEquals(classes.keySet(), new HashSet<>(directory.getClassNames()));
+			for (String className : classes.keySet()) {
+				assertEquals(className, directory.getClassFile(className).getHeader().getClassName());
+				assertEquals(className, directory.getClassFileHeader(className).getClassName());
+			}
+			assertNull(directory.getClassFile("README"));
+			assertNull(directory.getClassFile("com.example.Missing"));
+			assertNull(directory.getClassFileHeader("com.example.Missing"));
+		}
+	}
+
+	@Test
+	public void returnsNullForDeletedClass() throws IOException {
+		String className = classes.keySet().iterator().next();
+		try (ClassFileDirectory directory = new ClassFileDirectory(folder.getRoot())) {
+			Files.delete(new File(folder.getRoot(), ClassFileCollection.convertClassNameToEntry(className)).toPath());
+			assertNull(directory.getClassFile(className));
+			assertNull(directory.getClassFileHeader(className));
+		}
+	}
+
+	@Test
+	public void reusedBufferDoesNotChangeEarlierClasses() {
+		try (ClassFileDirectory directory = new ClassFileDirectory(folder.getRoot())) {
+			String previousClassName = null;
+			ClassFile previous = null;
+			for (String className : classes.keySet()) {
+				ByteBuffer buffer = ClassFileDirectory.BUFFER.get();
+				ClassFile classFile = directory.getClassFile(className);
+				if (previous != null) {
+					// the class files are small enough to be read into the same buffer
+					assertSame(buffer, ClassFileDirectory.BUFFER.get());
+					byte[] bytes = classes.get(previousClassName);
+					assertEquals(previousClassName, ClassFileTest.describe(new ClassFile(ByteBuffer.wrap(bytes))),
+							ClassFileTest.describe(previous));
+				}
+				previousClassName = className;
+				previous = classFile;
+			}
+		}
+	}
+
+}
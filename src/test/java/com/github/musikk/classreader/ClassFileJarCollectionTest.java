@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ClassFileJarCollection} with JARs sharing classes, opened one
+ * after another and by an {@link ExecutorService}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileJarCollectionTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecutorService executor;
+
+	private byte[][] classFiles;
+	private String[] classNames;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		List<byte[]> corpus = TestClasses.getClassFiles();
+		classFiles = new byte[5][];
+		classNames = new String[5];
+		for (int i = 0; i < classFiles.length; i++) {
+			classFiles[i] = corpus.get(i);
+			classNames[i] = ClassFile.scanHeader(ByteBuffer.wrap(classFiles[i])).getClassName();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void firstJarWinsWhenOpenedSerially() throws IOException {
+		assertFirstJarWins(null);
+	}
+
+	@Test
+	public void firstJarWinsWhenOpenedByExecutor() throws IOException {
+		assertFirstJarWins(executor);
+	}
+
+	@Test
+	public void closesOpenedJarsWhenOpenedSeriallyFails() throws IOException {
+		assertClosedOnFailure(null);
+	}
+
+	@Test
+	public void closesOpenedJarsWhenOpenedByExecutorFails() throws IOException {
+		assertClosedOnFailure(executor);
+	}
+
+	private void assertFirstJarWins(ExecutorService executor) throws IOException {
+		// the shared class has different content in every JAR
+		File first = createJar("first.jar", 0, 0, 1, 1);
+		File second = createJar("second.jar", 0, 2, 3, 3);
+		File third = createJar("third.jar", 0, 4);
+
+		try (ClassFileJarCollection collection = new ClassFileJarCollection(ClassFileJarMode.LAZY, executor, first,
+				second, third)) {
+			assertEquals(new HashSet<>(Arrays.asList(classNames[0], classNames[1], classNames[3])),
+					new HashSet<>(collection.getClassNames()));
+			assertEquals(classNames[0], collection.getClassFile(classNames[0]).getHeader().getClassName());
+			assertEquals(classNames[0], collection.getClassFileHeader(classNames[0]).getClassName());
+			assertEquals(classNames[3], collection.getClassFile(classNames[3]).getHeader().getClassName());
+			assertNull(collection.getClassFile(classNames[2]));
+
+			assertEquals(first, collection.getJar(classNames[0]));
+			assertEquals(second, collection.getJar(classNames[3]));
+			assertNull(collection.getJar(classNames[2]));
+			assertEquals(Arrays.asList(first, second, third), collection.getJars(classNames[0]));
+			assertEquals(Collections.singletonList(first), collection.getJars(classNames[1]));
+			assertEquals(Collections.emptyList(), collection.getJars(classNames[2]));
+			assertEquals(Collections.singleton(classNames[0]), collection.getShadowedClassNames());
+		}
+	}
+
+	private void assertClosedOnFailure(ExecutorService executor) throws IOException {
+		Assume.assumeTrue("open files can only be listed on Linux", Files.isDirectory(Paths.get("/proc/self/fd")));
+
+		File first = createJar("first.jar", 0, 0);
+		File second = createJar("second.jar", 1, 1);
+		File third = createJar("third.jar", 2, 2);
+		File invalid = folder.newFile("invalid.jar");
+		Files.write(invalid.toPath(), "not a JAR".getBytes());
+
+		// the JARs are really kept open by a lazy collection
+		try (ClassFileJarCollection collection = new ClassFileJarCollection(ClassFileJarMode.LAZY, executor, first,
+				second, third)) {
+			assertEquals(3, countOpenFiles());
+		}
+		assertEquals(0, countOpenFiles());
+
+		File[][] classPaths = { { first, second, third, invalid }, { first, invalid, second, third } };
+		for (File[] classPath : classPaths) {
+			try {
+				new ClassFileJarCollection(ClassFileJarMode.LAZY, executor, classPath).close();
+				fail("the invalid JAR must not be opened");
+			} catch (RuntimeException e) {
+				assertEquals(0, countOpenFiles());
+			}
+		}
+	}
+
+	/**
+	 * Creates a JAR whose entries are given as pairs of the class whose name
+	 * the entry gets and the class whose content it gets.
+	 */
+	private File createJar(String name, int... entries) throws IOException {
+		File jar = folder.newFile(name);
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+			for (int i = 0; i < entries.length; i += 2) {
+				zip.putNextEntry(new ZipEntry(ClassFileCollection.convertClassNameToEntry(classNames[entries[i]])));
+				zip.write(classFiles[entries[i + 1]]);
+				zip.closeEntry();
+			}
+		}
+		return jar;
+	}
+
+	/**
+	 * Counts the files of the temporary folder the process has opened.
+	 */
+	private int countOpenFiles() throws IOException {
+		Path root = folder.getRoot().toPath().toRealPath();
+		int count = 0;
+		try (DirectoryStream<Path> fds = Files.newDirectoryStream(Paths.get("/proc/self/fd"))) {
+			for (Path fd : fds) {
+				try {
+					if (Files.readSymbolicLink(fd).startsWith(root)) {
+						count++;
+					}
+				} catch (IOException e) {
+					// the descriptor has been closed in the meantime
+				}
+			}
+		}
+		return count;
+	}
+
+}
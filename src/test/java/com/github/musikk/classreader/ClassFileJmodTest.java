@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests {@link ClassFileJmod} with the {@code java.base} module of the
+ * running JDK.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileJmodTest {
+
+	@Test
+	public void readsClassesFromJavaBase() {
+		File jmod = new File(System.getProperty("java.home"), "jmods" + File.separator + "java.base.jmod");
+		Assume.assumeTrue("the running JDK has no jmod files", jmod.isFile());
+
+		try (ClassFileCollection classFiles = ClassFileCollection.getClassFileCollection(jmod)) {
+			assertTrue(classFiles instanceof ClassFileJmod);
+			ClassFileRuntimeImageTest.assertClasses(classFiles);
+			// the classes directory is not part of the class names
+			for (String className : classFiles.getClassNames()) {
+				assertFalse(className, className.startsWith("classes."));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests {@link ClassFileRuntimeImage} with the run-time image of the running
+ * JDK.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileRuntimeImageTest {
+
+	@Test
+	public void readsClassesFromModulesFile() {
+		File modules = new File(System.getProperty("java.home"), "lib" + File.separator + "modules");
+		Assume.assumeTrue("the running JDK has no run-time image", modules.isFile());
+
+		try (ClassFileCollection image = ClassFileCollection.getClassFileCollection(modules)) {
+			assertTrue(image instanceof ClassFileRuntimeImage);
+			assertClasses(image);
+		}
+	}
+
+	@Test
+	public void readsClassesOfRunningJdk() {
+		Assume.assumeTrue("the running JDK has no run-time image",
+				new File(System.getProperty("java.home"), "lib" + File.separator + "modules").isFile());
+
+		try (ClassFileCollection image = ClassFileCollection.getRuntimeImageCollection()) {
+			assertClasses(image);
+		}
+	}
+
+	/**
+	 * Checks classes of {@code java.base}, whose package {@code java.lang} is
+	 * also listed for the modules containing its subpackages.
+	 */
+	static void assertClasses(ClassFileCollection classFiles) {
+		ClassFile object = classFiles.getClassFile("java.lang.Object");
+		assertEquals("java.lang.Object", object.getHeader().getClassName());
+		assertNull(object.getHeader().getSuperClassName());
+		assertEquals("java.lang.invoke.MethodHandle",
+				classFiles.getClassFileHeader("java.lang.invoke.MethodHandle").getClassName());
+		assertNull(classFiles.getClassFile("java.lang.DoesNotExist"));
+		assertNull(classFiles.getClassFile("module-info"));
+
+		Collection<String> classNames = classFiles.getClassNames();
+		assertTrue(classNames.contains("java.lang.Object"));
+		assertTrue(classNames.contains("java.lang.invoke.MethodHandle"));
+		for (String className : classNames) {
+			assertFalse(className, className.endsWith("module-info"));
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests that classes parsed with {@link ParseOption}s are equal to eagerly
+ * parsed ones. Since the structures have no {@code equals} methods, they are
+ * compared by a description of everything reachable through their getters.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileTest {
+
+	/**
+	 * Getters that return views or indexes derived from the other getters.
+	 */
+	private static final Set<String> DERIVED_GETTERS = new HashSet<>(Arrays.asList("getInstructionCursor",
+			"getPackedInstructions", "getControlFlowGraph", "getLineNumberIndex", "getPackedFrames"));
+
+	private static final int MAX_DEPTH = 12;
+
+	private static final Map<Class<?>, List<Method>> GETTERS = new HashMap<>();
+
+	@Test
+	public void lazyConstantPoolEqualsEagerParsing() {
+		assertEqualToEagerParsing(ParseOption.LAZY_CONSTANT_POOL);
+	}
+
+	@Test
+	public void lazyAttributesEqualEagerParsing() {
+		assertEqualToEagerParsing(ParseOption.LAZY_ATTRIBUTES);
+	}
+
+	@Test
+	public void allLazyOptionsEqualEagerParsing() {
+		assertEqualToEagerParsing(ParseOption.LAZY_CONSTANT_POOL, ParseOption.LAZY_ATTRIBUTES);
+	}
+
+	private static void assertEqualToEagerParsing(ParseOption... options) {
+		for (byte[] classFile : TestClasses.getClassFiles()) {
+			String expected = describe(new ClassFile(ByteBuffer.wrap(classFile)));
+			String actual = describe(new ClassFile(ByteBuffer.wrap(classFile), options));
+			assertEquals(expected, actual);
+		}
+	}
+
+	/**
+	 * Describes an object by the values of its getters, recursively.
+	 */
+	static String describe(Object o) {
+		StringBuilder sb = new StringBuilder();
+		describe(o, sb, 0);
+		return sb.toString();
+	}
+
+	private static void describe(Object o, StringBuilder sb, int depth) {
+		if (depth > MAX_DEPTH) {
+			sb.append("...");
+			return;
+		}
+		if (o == null || o instanceof Number || o instanceof String || o instanceof Boolean
+				|| o instanceof Character || o instanceof Enum) {
+			sb.append(o);
+			return;
+		}
+		if (o instanceof byte[]) {
+			sb.append(Arrays.toString((byte[]) o));
+			return;
+		}
+		if (o instanceof Object[]) {
+			o = Arrays.asList((Object[]) o);
+		}
+		if (o instanceof Map) {
+			o = ((Map<?, ?>) o).entrySet();
+		}
+		if (o instanceof Map.Entry) {
+			describe(((Map.Entry<?, ?>) o).getKey(), sb, depth + 1);
+			sb.append('=');
+			describe(((Map.Entry<?, ?>) o).getValue(), sb, depth + 1);
+			return;
+		}
+		if (o instanceof Collection) {
+			sb.append('[');
+			for (Object element : (Collection<?>) o) {
+				describe(element, sb, depth + 1);
+				sb.append(',');
+			}
+			sb.append(']');
+			return;
+		}
+
+		sb.append(o.getClass().getSimpleName()).append('{');
+		for (Method getter : getGetters(o.getClass())) {
+			sb.append(getter.getName()).append(':');
+			try {
+				describe(getter.invoke(o), sb, depth + 1);
+			} catch (InvocationTargetException e) {
+				sb.append(e.getCause().getClass().getName());
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			}
+			sb.append(';');
+		}
+		if (o instanceof Iterable) {
+			for (Object element : (Iterable<?>) o) {
+				describe(element, sb, depth + 1);
+				sb.append(',');
+			}
+		}
+		sb.append('}');
+	}
+
+	private static List<Method> getGetters(Class<?> type) {
+		List<Method> getters = GETTERS.get(type);
+		if (getters == null) {
+			getters = findGetters(type);
+			GETTERS.put(type, getters);
+		}
+		return getters;
+	}
+
+	private static List<Method> findGetters(Class<?> type) {
+		List<Method> getters = new ArrayList<>();
+		for (Method method : type.getMethods()) {
+			String name = method.getName();
+			if (method.getParameterTypes().length == 0 && !Modifier.isStatic(method.getModifiers())
+					&& (name.startsWith("get") || name.startsWith("is")) && !DERIVED_GETTERS.contains(name)
+					&& method.getDeclaringClass().getName().startsWith("com.github.musikk.classreader")) {
+				getters.add(method);
+			}
+		}
+		Collections.sort(getters, new Comparator<Method>() {
+			@Override
+			public int compare(Method m1, Method m2) {
+				return m1.getName().compareTo(m2.getName());
+			}
+		});
+		return getters;
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.github.musikk.classreader.attributes.AttributeType;
+import com.github.musikk.classreader.attributes.CodeAttribute;
+import com.github.musikk.classreader.instructions.InstructionCursor;
+import com.github.musikk.classreader.methods.MethodInfo;
+
+/**
+ * Tests that {@link ClassFile#accept(ByteBuffer, ClassFileVisitor)} visits the
+ * same instructions as the code of the parsed methods.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ClassFileVisitorTest {
+
+	@Test
+	public void visitsInstructionsOfHeapBuffer() {
+		for (byte[] bytes : TestClasses.getClassFiles()) {
+			assertEquals(describeParsed(bytes), describeVisited(ByteBuffer.wrap(bytes)));
+		}
+	}
+
+	@Test
+	public void visitsInstructionsOfDirectBuffer() {
+		for (byte[] bytes : TestClasses.getClassFiles()) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+			buffer.put(bytes);
+			buffer.flip();
+			assertEquals(describeParsed(bytes), describeVisited(buffer));
+		}
+	}
+
+	private static String describeParsed(byte[] bytes) {
+		StringBuilder description = new StringBuilder();
+		ClassFile classFile = new ClassFile(ByteBuffer.wrap(bytes));
+		for (MethodInfo method : classFile.getMethods()) {
+			CodeAttribute codeAttribute = (CodeAttribute) method.getAttributes().getAttributeInfo(
+					classFile.getConstantPool(), AttributeType.CODE);
+			if (codeAttribute != null) {
+				InstructionCursor cursor = codeAttribute.getCode().getInstructionCursor();
+				while (cursor.next()) {
+					describe(description, cursor);
+				}
+				description.append('\n');
+			}
+		}
+		return description.toString();
+	}
+
+	private static String describeVisited(ByteBuffer buffer) {
+		final StringBuilder description = new StringBuilder();
+		ClassFile.accept(buffer, new ClassFileVisitor() {
+
+			@Override
+			public boolean visitHeader(ClassFileHeader header) {
+				return true;
+			}
+
+			@Override
+			public boolean visitMethod(int accessFlags, int nameIndex, int descriptorIndex) {
+				return true;
+			}
+
+			@Override
+			public boolean visitCode(int maxStack, int maxLocals, int codeLength) {
+				return true;
+			}
+
+			@Override
+			public void visitInstruction(InstructionCursor instruction) {
+				describe(description, instruction);
+			}
+
+			@Override
+			public void visitCodeEnd() {
+				description.append('\n');
+			}
+
+		});
+		return description.toString();
+	}
+
+	private static void describe(StringBuilder description, InstructionCursor cursor) {
+		description.append(cursor.offset()).append(':').append(cursor.opcode());
+		for (int i = 0; i < cursor.operandCount(); i++) {
+			description.append(',').append(cursor.operand(i));
+		}
+		description.append(' ');
+	}
+
+}
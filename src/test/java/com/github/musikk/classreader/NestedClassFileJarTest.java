@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link NestedClassFileJar} with a small Spring Boot style fat JAR.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class NestedClassFileJarTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private byte[][] classFiles;
+	private String[] classNames;
+
+	private File fatJar;
+
+	@Before
+	public void setUp() throws IOException {
+		List<byte[]> corpus = TestClasses.getClassFiles();
+		classFiles = new byte[7][];
+		classNames = new String[7];
+		for (int i = 0; i < classFiles.length; i++) {
+			classFiles[i] = corpus.get(i);
+			classNames[i] = ClassFile.scanHeader(ByteBuffer.wrap(classFiles[i])).getClassName();
+		}
+
+		// entries are given as pairs of the class whose name the entry gets and
+		// the class whose content it gets
+		byte[] first = createJar(1, 1, 2, 2, 3, 5);
+		byte[] second = createJar(3, 3, 4, 4);
+		byte[] third = createJar(6, 6, 3, 5);
+		byte[] resource = createJar(5, 5);
+
+		fatJar = folder.newFile("fat.jar");
+		try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(fatJar))) {
+			addDeflated(zip, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+			addDeflated(zip, getClassEntry("BOOT-INF/classes/", 0), classFiles[0]);
+			addDeflated(zip, getClassEntry("BOOT-INF/classes/", 2), classFiles[2]);
+			addStored(zip, "BOOT-INF/classes/static/resource.jar", resource);
+			addDeflated(zip, "BOOT-INF/classpath.idx", ("- \"BOOT-INF/lib/second.jar\"\n"
+					+ "- \"BOOT-INF/lib/first.jar\"\n").getBytes(StandardCharsets.UTF_8));
+			addStored(zip, "BOOT-INF/lib/first.jar", first);
+			addDeflated(zip, "BOOT-INF/lib/second.jar", second);
+			addStored(zip, "BOOT-INF/lib/third.jar", third);
+			addStored(zip, "lib/resource.jar", resource);
+		}
+	}
+
+	@Test
+	public void ordersNestedJarsByClasspathIndex() {
+		try (NestedClassFileJar jar = new NestedClassFileJar(fatJar)) {
+			assertEquals(Arrays.asList("BOOT-INF/lib/second.jar", "BOOT-INF/lib/first.jar", "BOOT-INF/lib/third.jar"),
+					jar.getNestedJarNames());
+
+			// the class of the first and the third JAR is shadowed by the second
+			assertEquals("BOOT-INF/lib/second.jar", jar.getNestedJarName(classNames[3]));
+			assertEquals(classNames[3], jar.getClassFile(classNames[3]).getHeader().getClassName());
+		}
+	}
+
+	@Test
+	public void readsStoredAndDeflatedNestedJars() {
+		try (NestedClassFileJar jar = new NestedClassFileJar(fatJar)) {
+			assertEquals("BOOT-INF/lib/first.jar", jar.getNestedJarName(classNames[1]));
+			assertEquals(classNames[1], jar.getClassFile(classNames[1]).getHeader().getClassName());
+			assertEquals(classNames[1], jar.getClassFileHeader(classNames[1]).getClassName());
+
+			assertEquals("BOOT-INF/lib/second.jar", jar.getNestedJarName(classNames[4]));
+			assertEquals(classNames[4], jar.getClassFile(classNames[4]).getHeader().getClassName());
+			assertEquals(classNames[4], jar.getClassFileHeader(classNames[4]).getClassName());
+
+			assertEquals("BOOT-INF/lib/third.jar", jar.getNestedJarName(classNames[6]));
+		}
+	}
+
+	@Test
+	public void stripsClassesDirectory() {
+		try (NestedClassFileJar jar = new NestedClassFileJar(fatJar)) {
+			assertEquals(classNames[0], jar.getClassFile(classNames[0]).getHeader().getClassName());
+			assertNull(jar.getNestedJarName(classNames[0]));
+
+			// the outer JAR comes before the nested JARs
+			assertNull(jar.getNestedJarName(classNames[2]));
+		}
+	}
+
+	@Test
+	public void ignoresJarsOutsideOfLibDirectories() {
+		try (NestedClassFileJar jar = new NestedClassFileJar(fatJar)) {
+			assertNull(jar.getClassFile(classNames[5]));
+			assertEquals(new HashSet<>(Arrays.asList(classNames[0], classNames[1], classNames[2], classNames[3],
+					classNames[4], classNames[6])), new HashSet<>(jar.getClassNames()));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failsAfterClose() {
+		NestedClassFileJar jar = new NestedClassFileJar(fatJar);
+		jar.close();
+		jar.getClassFile(classNames[0]);
+	}
+
+	private byte[] createJar(int... entries) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (int i = 0; i < entries.length; i += 2) {
+				addDeflated(zip, getClassEntry("", entries[i]), classFiles[entries[i + 1]]);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private String getClassEntry(String directory, int i) {
+		return directory + ClassFileCollection.convertClassNameToEntry(classNames[i]);
+	}
+
+	private static void addStored(ZipOutputStream zip, String name, byte[] content) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(content.length);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private static void addDeflated(ZipOutputStream zip, String name, byte[] content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests {@link ZipArchive} against archives written by {@link ZipOutputStream}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ZipArchiveTest {
+
+	private static final byte[] TEXT = "Lorem ipsum dolor sit amet, lorem ipsum dolor sit amet.".getBytes();
+
+	private static final byte[] RANDOM = new byte[10000];
+
+	static {
+		new Random(42).nextBytes(RANDOM);
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsStoredAndDeflatedEntries() throws IOException {
+		assertEntries(ZipArchive.getZipArchive(ByteBuffer.wrap(createArchive())));
+	}
+
+	@Test
+	public void readsArchiveWithPrependedHeader() throws IOException {
+		byte[] archive = createArchive();
+		// a jmod file starts with a four byte header
+		byte[] prefixed = new byte[archive.length + 4];
+		prefixed[0] = 'J';
+		prefixed[1] = 'M';
+		prefixed[2] = 1;
+		System.arraycopy(archive, 0, prefixed, 4, archive.length);
+		assertEntries(ZipArchive.getZipArchive(ByteBuffer.wrap(prefixed)));
+	}
+
+	@Test
+	public void readsArchiveFromDirectBuffer() throws IOException {
+		byte[] archive = createArchive();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(archive.length);
+		buffer.put(archive);
+		buffer.flip();
+		assertEntries(ZipArchive.getZipArchive(buffer));
+	}
+
+	@Test
+	public void lastDuplicateEntryWinsLikeZipFile() throws IOException {
+		File file = folder.newFile("duplicates.zip");
+		Files.write(file.toPath(), createDuplicateArchive("dup.txt", TEXT, "dux.txt", RANDOM));
+
+		ZipArchive archive = ZipArchive.getZipArchive(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+		assertEquals(1, archive.getEntries().size());
+		assertContent(RANDOM, archive, "dup.txt");
+
+		try (ZipFile zipFile = new ZipFile(file); InputStream in = zipFile.getInputStream(zipFile.getEntry("dup.txt"))) {
+			assertArrayEquals(RANDOM, ByteStreams.toByteArray(in));
+		}
+	}
+
+	@Test
+	public void lastDuplicateClassWinsInEveryMode() throws IOException {
+		List<byte[]> classFiles = TestClasses.getClassFiles();
+		byte[] first = classFiles.get(0);
+		byte[] last = classFiles.get(1);
+		String lastClassName = new ClassFile(last, 0, last.length).getHeader().getClassName();
+		File jar = folder.newFile("duplicates.jar");
+		Files.write(jar.toPath(), createDuplicateArchive("p/Dup.class", first, "p/Dux.class", last));
+
+		for (ClassFileJarMode mode : ClassFileJarMode.values()) {
+			try (ClassFileCollection collection = ClassFileCollection.getClassFileCollection(jar, mode)) {
+				assertEquals(mode.name(), 1, collection.getClassNames().size());
+				ClassFile classFile = collection.getClassFile("p.Dup");
+				assertEquals(mode.name(), lastClassName, classFile.getHeader().getClassName());
+			}
+		}
+	}
+
+	private static void assertEntries(ZipArchive archive) {
+		assertEquals(4, archive.getEntries().size());
+		assertContent(TEXT, archive, "stored.txt");
+		assertContent(TEXT, archive, "deflated.txt");
+		assertContent(RANDOM, archive, "stored.bin");
+		assertContent(RANDOM, archive, "deflated.bin");
+		assertNull(archive.getEntry("missing.txt"));
+	}
+
+	private static void assertContent(byte[] expected, ZipArchive archive, String name) {
+		ByteBuffer content = archive.getContent(archive.getEntry(name));
+		byte[] actual = new byte[content.remaining()];
+		content.get(actual);
+		assertArrayEquals(name, expected, actual);
+	}
+
+	private static byte[] createArchive() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(out)) {
+			addStored(zip, "stored.txt", TEXT);
+			addDeflated(zip, "deflated.txt", TEXT);
+			addStored(zip, "stored.bin", RANDOM);
+			addDeflated(zip, "deflated.bin", RANDOM);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Creates an archive with two entries named {@code name}. ZipOutputStream
+	 * rejects duplicates, so the second entry is written as
+	 * {@code placeholder} which must be as long as {@code name} and is then
+	 * renamed in both the local header and the central directory.
+	 */
+	private static byte[] createDuplicateArchive(String name, byte[] first, String placeholder, byte[] last)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipOutputStream zip = new ZipOutputStream(out)) {
+			addStored(zip, name, first);
+			addDeflated(zip, placeholder, last);
+		}
+		byte[] archive = out.toByteArray();
+		byte[] from = placeholder.getBytes(StandardCharsets.UTF_8);
+		byte[] to = name.getBytes(StandardCharsets.UTF_8);
+		int renamed = 0;
+		for (int i = 0; i + from.length <= archive.length; i++) {
+			if (regionMatches(archive, i, from)) {
+				System.arraycopy(to, 0, archive, i, to.length);
+				renamed++;
+			}
+		}
+		assertEquals(2, renamed);
+		return archive;
+	}
+
+	private static boolean regionMatches(byte[] array, int offset, byte[] region) {
+		for (int i = 0; i < region.length; i++) {
+			if (array[offset + i] != region[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void addStored(ZipOutputStream zip, String name, byte[] content) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(content.length);
+		CRC32 crc = new CRC32();
+		crc.update(content);
+		entry.setCrc(crc.getValue());
+		zip.putNextEntry(entry);
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+	private static void addDeflated(ZipOutputStream zip, String name, byte[] content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(content);
+		zip.closeEntry();
+	}
+
+}
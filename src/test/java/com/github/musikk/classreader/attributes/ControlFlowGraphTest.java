@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.attributes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.github.musikk.classreader.ByteBufferClassReader;
+import com.github.musikk.classreader.ClassReaderContext;
+
+/**
+ * Tests {@link ControlFlowGraph} with hand-assembled code.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class ControlFlowGraphTest {
+
+	@Test
+	public void splitsBlocksAtBranches() {
+		ControlFlowGraph graph = getControlFlowGraph(new int[] {
+				0x1a, // 0: iload_0
+				0x99, 0x00, 0x07, // 1: ifeq 8
+				0x04, // 4: iconst_1
+				0xa7, 0x00, 0x04, // 5: goto 9
+				0x03, // 8: iconst_0
+				0xac, // 9: ireturn
+		});
+
+		assertBlocks(graph, 0, 4, 8, 9, 10);
+		assertSuccessors(graph, 0, 2, 1);
+		assertSuccessors(graph, 1, 3);
+		assertSuccessors(graph, 2, 3);
+		assertSuccessors(graph, 3);
+		assertEquals(0, graph.getBlockAt(3));
+		assertEquals(1, graph.getBlockAt(5));
+		assertEquals(3, graph.getBlockAt(9));
+		assertEquals(-1, graph.getBlockAt(10));
+	}
+
+	@Test
+	public void addsTableswitchTargets() {
+		ControlFlowGraph graph = getControlFlowGraph(new int[] {
+				0x1a, // 0: iload_0
+				0xaa, 0x00, 0x00, // 1: tableswitch with padding
+				0x00, 0x00, 0x00, 0x1b, // default: 28
+				0x00, 0x00, 0x00, 0x00, // low: 0
+				0x00, 0x00, 0x00, 0x01, // high: 1
+				0x00, 0x00, 0x00, 0x17, // 0: 24
+				0x00, 0x00, 0x00, 0x19, // 1: 26
+				0x03, 0xac, // 24: iconst_0, ireturn
+				0x04, 0xac, // 26: iconst_1, ireturn
+				0x02, 0xac, // 28: iconst_m1, ireturn
+		});
+
+		assertBlocks(graph, 0, 24, 26, 28, 30);
+		assertSuccessors(graph, 0, 3, 1, 2);
+		assertSuccessors(graph, 1);
+		assertSuccessors(graph, 2);
+		assertSuccessors(graph, 3);
+	}
+
+	@Test
+	public void addsLookupswitchTargetsOnce() {
+		ControlFlowGraph graph = getControlFlowGraph(new int[] {
+				0x1a, // 0: iload_0
+				0xab, 0x00, 0x00, // 1: lookupswitch with padding
+				0x00, 0x00, 0x00, 0x1d, // default: 30
+				0x00, 0x00, 0x00, 0x02, // npairs: 2
+				0x00, 0x00, 0x00, 0x05, 0x00, 0x00, 0x00, 0x1b, // 5: 28
+				0x00, 0x00, 0x00, 0x09, 0x00, 0x00, 0x00, 0x1b, // 9: 28
+				0x03, 0xac, // 28: iconst_0, ireturn
+				0x04, 0xac, // 30: iconst_1, ireturn
+		});
+
+		assertBlocks(graph, 0, 28, 30, 32);
+		assertSuccessors(graph, 0, 2, 1);
+	}
+
+	@Test
+	public void addsExceptionSuccessors() {
+		ControlFlowGraph graph = getControlFlowGraph(new int[] {
+				0x03, // 0: iconst_0
+				0x3c, // 1: istore_1
+				0x04, // 2: iconst_1
+				0xac, // 3: ireturn
+				0x4c, // 4: astore_1
+				0x02, // 5: iconst_m1
+				0xac, // 6: ireturn
+		}, 1, 3, 4, 0);
+
+		assertBlocks(graph, 0, 1, 3, 4, 7);
+		assertSuccessors(graph, 0, 1);
+		assertSuccessors(graph, 1, 2);
+		assertSuccessors(graph, 2);
+		assertSuccessors(graph, 3);
+		assertExceptionSuccessors(graph, 0);
+		assertExceptionSuccessors(graph, 1, 3);
+		assertExceptionSuccessors(graph, 2);
+		assertExceptionSuccessors(graph, 3);
+	}
+
+	@Test
+	public void endsBlockAtWideRet() {
+		ControlFlowGraph graph = getControlFlowGraph(new int[] {
+				0xa8, 0x00, 0x05, // 0: jsr 5
+				0x03, 0xac, // 3: iconst_0, ireturn
+				0xc4, 0x3a, 0x01, 0x00, // 5: wide astore 256
+				0xc4, 0xa9, 0x01, 0x00, // 9: wide ret 256
+				0x04, 0xac, // 13: iconst_1, ireturn
+		});
+
+		assertBlocks(graph, 0, 3, 5, 13, 15);
+		assertSuccessors(graph, 0, 2, 1);
+		assertSuccessors(graph, 1);
+		assertSuccessors(graph, 2);
+		assertSuccessors(graph, 3);
+	}
+
+	@Test
+	public void hasNoBlocksWithoutCode() {
+		ControlFlowGraph graph = getControlFlowGraph(new int[0]);
+		assertEquals(0, graph.getBlockCount());
+		assertEquals(-1, graph.getBlockAt(0));
+	}
+
+	/**
+	 * Builds the graph of the given code and exception table whose entries
+	 * are given as start, end, handler and catch type.
+	 */
+	private static ControlFlowGraph getControlFlowGraph(int[] code, int... exceptionTable) {
+		ByteBuffer buffer = ByteBuffer.allocate(4 + code.length + 2 + 2 * exceptionTable.length);
+		buffer.putInt(code.length);
+		for (int b : code) {
+			buffer.put((byte) b);
+		}
+		buffer.putShort((short) (exceptionTable.length / 4));
+		for (int value : exceptionTable) {
+			buffer.putShort((short) value);
+		}
+		buffer.flip();
+
+		ClassReaderContext ctxt = new ClassReaderContext(new ByteBufferClassReader(buffer));
+		return ControlFlowGraph.getControlFlowGraph(Code.getCode(ctxt), ExceptionTable.getExceptionTable(ctxt));
+	}
+
+	/**
+	 * Asserts the start offsets of all blocks followed by the end of the last
+	 * one.
+	 */
+	private static void assertBlocks(ControlFlowGraph graph, int... offsets) {
+		int[] actual = new int[graph.getBlockCount() + 1];
+		for (int block = 0; block < graph.getBlockCount(); block++) {
+			actual[block] = graph.getStartOffset(block);
+			if (block > 0) {
+				assertEquals(actual[block], graph.getEndOffset(block - 1));
+			}
+		}
+		actual[graph.getBlockCount()] = graph.getEndOffset(graph.getBlockCount() - 1);
+		assertArrayEquals(offsets, actual);
+	}
+
+	private static void assertSuccessors(ControlFlowGraph graph, int block, int... successors) {
+		int[] actual = new int[graph.getSuccessorCount(block)];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = graph.getSuccessor(block, i);
+		}
+		assertArrayEquals("successors of block " + block, successors, actual);
+	}
+
+	private static void assertExceptionSuccessors(ControlFlowGraph graph, int block, int... successors) {
+		int[] actual = new int[graph.getExceptionSuccessorCount(block)];
+		for (int i = 0; i < actual.length; i++) {
+			actual[i] = graph.getExceptionSuccessor(block, i);
+		}
+		assertArrayEquals("exception successors of block " + block, successors, actual);
+	}
+
+}
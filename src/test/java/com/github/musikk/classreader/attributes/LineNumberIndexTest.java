@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.attributes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.github.musikk.classreader.ByteBufferClassReader;
+import com.github.musikk.classreader.ClassReaderContext;
+
+/**
+ * Tests {@link LineNumberIndex} with line number tables given as pairs of
+ * start offset and line.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class LineNumberIndexTest {
+
+	private static final LineNumberTableAttribute FIRST = getLineNumberTable(
+			0, 10,
+			4, 11,
+			4, 12,
+			9, 10);
+
+	private static final LineNumberTableAttribute SECOND = getLineNumberTable(
+			12, 13,
+			6, 20,
+			4, 30,
+			9, 10);
+
+	@Test
+	public void findsLineOfOffset() {
+		LineNumberIndex index = LineNumberIndex.getLineNumberIndex(Arrays.asList(FIRST, SECOND));
+		assertFalse(index.isEmpty());
+		assertEquals(10, index.lineForOffset(0));
+		assertEquals(10, index.lineForOffset(3));
+		assertEquals(20, index.lineForOffset(6));
+		assertEquals(20, index.lineForOffset(8));
+		assertEquals(10, index.lineForOffset(9));
+		assertEquals(13, index.lineForOffset(12));
+		assertEquals(13, index.lineForOffset(100));
+	}
+
+	@Test
+	public void firstEntryWinsForDuplicateOffsets() {
+		LineNumberIndex index = LineNumberIndex.getLineNumberIndex(Arrays.asList(FIRST, SECOND));
+		assertEquals(11, index.lineForOffset(4));
+		assertEquals(11, index.lineForOffset(5));
+
+		index = LineNumberIndex.getLineNumberIndex(Arrays.asList(SECOND, FIRST));
+		assertEquals(30, index.lineForOffset(4));
+		assertEquals(30, index.lineForOffset(5));
+	}
+
+	@Test
+	public void findsOffsetsOfLine() {
+		LineNumberIndex index = LineNumberIndex.getLineNumberIndex(Arrays.asList(FIRST, SECOND));
+		assertArrayEquals(new int[] { 0, 9 }, index.offsetsForLine(10));
+		assertArrayEquals(new int[] { 4 }, index.offsetsForLine(11));
+		assertArrayEquals(new int[] { 4 }, index.offsetsForLine(12));
+		assertArrayEquals(new int[] { 4 }, index.offsetsForLine(30));
+		assertArrayEquals(new int[] { 6 }, index.offsetsForLine(20));
+		assertArrayEquals(new int[0], index.offsetsForLine(99));
+	}
+
+	@Test
+	public void returnsNoLineBeforeFirstEntry() {
+		LineNumberIndex index = LineNumberIndex.getLineNumberIndex(Collections.singletonList(getLineNumberTable(
+				2, 5)));
+		assertEquals(-1, index.lineForOffset(0));
+		assertEquals(5, index.lineForOffset(2));
+	}
+
+	@Test
+	public void isEmptyWithoutTables() {
+		LineNumberIndex index = LineNumberIndex.getLineNumberIndex(Collections.<LineNumberTableAttribute> emptyList());
+		assertTrue(index.isEmpty());
+		assertEquals(-1, index.lineForOffset(0));
+		assertArrayEquals(new int[0], index.offsetsForLine(1));
+	}
+
+	private static LineNumberTableAttribute getLineNumberTable(int... startPcsAndLines) {
+		ByteBuffer buffer = ByteBuffer.allocate(2 + 2 * startPcsAndLines.length);
+		buffer.putShort((short) (startPcsAndLines.length / 2));
+		for (int value : startPcsAndLines) {
+			buffer.putShort((short) value);
+		}
+		buffer.flip();
+		return LineNumberTableAttribute.getLineNumberTableAttribute(new ClassReaderContext(new ByteBufferClassReader(
+				buffer)));
+	}
+
+}
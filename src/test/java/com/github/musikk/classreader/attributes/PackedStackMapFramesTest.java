@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.attributes;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.TestClasses;
+import com.github.musikk.classreader.attributes.StackMapFrame.AppendFrame;
+import com.github.musikk.classreader.attributes.StackMapFrame.ChopFrame;
+import com.github.musikk.classreader.attributes.StackMapFrame.FullFrame;
+import com.github.musikk.classreader.attributes.StackMapFrame.ObjectVariableInfo;
+import com.github.musikk.classreader.attributes.StackMapFrame.SameFrameExtended;
+import com.github.musikk.classreader.attributes.StackMapFrame.SameLocals1StackItemFrame;
+import com.github.musikk.classreader.attributes.StackMapFrame.SameLocals1StackItemFrameExtended;
+import com.github.musikk.classreader.attributes.StackMapFrame.Type;
+import com.github.musikk.classreader.attributes.StackMapFrame.UninitializedVariableInfo;
+import com.github.musikk.classreader.attributes.StackMapFrame.VerificationTypeInfo;
+import com.github.musikk.classreader.constantpool.ConstantPool;
+import com.github.musikk.classreader.methods.MethodInfo;
+
+/**
+ * Tests that {@link PackedStackMapFrames} decodes the same frames as
+ * {@link StackMapTable#getEntries()}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class PackedStackMapFramesTest {
+
+	@Test
+	public void packedFramesEqualEntries() {
+		int frameCount = 0;
+		for (byte[] bytes : TestClasses.getClassFiles()) {
+			ClassFile classFile = new ClassFile(ByteBuffer.wrap(bytes));
+			ConstantPool constantPool = classFile.getConstantPool();
+			for (MethodInfo method : classFile.getMethods()) {
+				CodeAttribute codeAttribute = (CodeAttribute) method.getAttributes().getAttributeInfo(constantPool,
+						AttributeType.CODE);
+				if (codeAttribute == null) {
+					continue;
+				}
+				StackMapTable stackMapTable = (StackMapTable) codeAttribute.getAttributes().getAttributeInfo(
+						constantPool, AttributeType.STACK_MAP_TABLE);
+				if (stackMapTable != null) {
+					String descriptor = constantPool.getUtf8Info(method.getDescriptorIndex()).getValue();
+					int[] initialLocals = getInitialLocals(descriptor, method.isStatic());
+					frameCount += assertPackedFramesEqualEntries(stackMapTable, initialLocals);
+				}
+			}
+		}
+		assertTrue(frameCount > 0);
+	}
+
+	private static int assertPackedFramesEqualEntries(StackMapTable stackMapTable, int[] initialLocals) {
+		List<StackMapFrame> entries = stackMapTable.getEntries();
+		PackedStackMapFrames packedFrames = stackMapTable.getPackedFrames();
+		assertEquals(entries.size(), packedFrames.size());
+
+		List<Integer> locals = new ArrayList<>();
+		for (int local : initialLocals) {
+			locals.add(local);
+		}
+		int offset = -1;
+		for (int i = 0; i < entries.size(); i++) {
+			StackMapFrame entry = entries.get(i);
+			Type type = Type.getTypeFromFrameType(entry.getFrameType());
+			assertEquals(type, packedFrames.getType(i));
+
+			offset += getOffsetDelta(entry) + 1;
+			assertEquals(offset, packedFrames.getOffset(i));
+			assertEquals(i, packedFrames.indexOf(offset));
+
+			List<VerificationTypeInfo> listedLocals = Collections.emptyList();
+			List<VerificationTypeInfo> stack = Collections.emptyList();
+			int choppedLocals = 0;
+			switch (type) {
+			case SAME_LOCALS_1_STACK_ITEM_FRAME:
+				stack = Collections.singletonList(((SameLocals1StackItemFrame) entry).getStack());
+				break;
+			case SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED:
+				stack = Collections.singletonList(((SameLocals1StackItemFrameExtended) entry).getStack());
+				break;
+			case CHOP_FRAME:
+				choppedLocals = 251 - entry.getFrameType();
+				locals.subList(locals.size() - choppedLocals, locals.size()).clear();
+				break;
+			case APPEND_FRAME:
+				listedLocals = ((AppendFrame) entry).getLocals();
+				locals.addAll(encode(listedLocals));
+				break;
+			case FULL_FRAME:
+				listedLocals = ((FullFrame) entry).getLocals();
+				stack = ((FullFrame) entry).getStack();
+				locals.clear();
+				locals.addAll(encode(listedLocals));
+				break;
+			default:
+				break;
+			}
+
+			assertEquals(choppedLocals, packedFrames.getChoppedLocals(i));
+			assertEquals(listedLocals.size(), packedFrames.getLocalsCount(i));
+			for (int j = 0; j < listedLocals.size(); j++) {
+				assertEquals(encode(listedLocals.get(j)), packedFrames.getLocal(i, j));
+			}
+			assertEquals(stack.size(), packedFrames.getStackCount(i));
+			for (int j = 0; j < stack.size(); j++) {
+				assertEquals(encode(stack.get(j)), packedFrames.getStack(i, j));
+			}
+			assertArrayEquals(toArray(locals), packedFrames.getLocals(i, initialLocals));
+		}
+		return entries.size();
+	}
+
+	private static int getOffsetDelta(StackMapFrame entry) {
+		switch (Type.getTypeFromFrameType(entry.getFrameType())) {
+		case SAME_FRAME:
+			return entry.getFrameType();
+		case SAME_LOCALS_1_STACK_ITEM_FRAME:
+			return entry.getFrameType() - 64;
+		case SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED:
+			return ((SameLocals1StackItemFrameExtended) entry).getOffsetDelta();
+		case CHOP_FRAME:
+			return ((ChopFrame) entry).getOffsetDelta();
+		case SAME_FRAME_EXTENDED:
+			return ((SameFrameExtended) entry).getOffsetDelta();
+		case APPEND_FRAME:
+			return ((AppendFrame) entry).getOffsetDelta();
+		case FULL_FRAME:
+			return ((FullFrame) entry).getOffsetDelta();
+		default:
+			throw new IllegalArgumentException(entry.toString());
+		}
+	}
+
+	/**
+	 * Returns distinct placeholders for the locals of the implicit initial
+	 * frame, one per parameter and one for {@code this}. The frames only
+	 * depend on their number: long and double take one verification type.
+	 */
+	private static int[] getInitialLocals(String descriptor, boolean isStatic) {
+		List<Integer> locals = new ArrayList<>();
+		if (!isStatic) {
+			locals.add(PackedStackMapFrames.encode(VerificationTypeInfo.UNINITIALIZED, 0xffff));
+		}
+		for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+			while (descriptor.charAt(i) == '[') {
+				i++;
+			}
+			if (descriptor.charAt(i) == 'L') {
+				i = descriptor.indexOf(';', i);
+			}
+			locals.add(PackedStackMapFrames.encode(VerificationTypeInfo.UNINITIALIZED, 0xffff - 1 - locals.size()));
+		}
+		return toArray(locals);
+	}
+
+	private static List<Integer> encode(List<VerificationTypeInfo> verificationTypes) {
+		List<Integer> encoded = new ArrayList<>(verificationTypes.size());
+		for (VerificationTypeInfo verificationType : verificationTypes) {
+			encoded.add(encode(verificationType));
+		}
+		return encoded;
+	}
+
+	private static int encode(VerificationTypeInfo verificationType) {
+		int data = 0;
+		if (verificationType instanceof ObjectVariableInfo) {
+			data = ((ObjectVariableInfo) verificationType).getConstantPoolIndex();
+		} else if (verificationType instanceof UninitializedVariableInfo) {
+			data = ((UninitializedVariableInfo) verificationType).getOffset();
+		}
+		return PackedStackMapFrames.encode(verificationType.getTag(), data);
+	}
+
+	private static int[] toArray(List<Integer> values) {
+		int[] array = new int[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
+}
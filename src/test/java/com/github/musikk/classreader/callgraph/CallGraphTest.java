@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.callgraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.musikk.classreader.ClassFileCollection;
+import com.github.musikk.classreader.constantpool.MethodReference;
+
+/**
+ * Tests {@link CallGraph} with classes compiled from small sources.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class CallGraphTest {
+
+	private static final Pattern TYPE_NAME = Pattern.compile("(?:class|interface) (\\w+)");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void resolvesInterfaceMethodOfSubinterface() throws IOException {
+		CallGraph callGraph = getCallGraph(
+				"package p; interface I { void m(); }",
+				"package p; interface J extends I {}",
+				"package p; class B implements J { public void m() {} }",
+				"package p; class C { void call(J j) { j.m(); } }");
+
+		assertEquals(set("p/B.m()V"), getCallees(callGraph, "p/C", "call", "(Lp/J;)V"));
+		assertEquals(-1, callGraph.getMethodId(new MethodReference("java/lang/Object", "m", "()V")));
+	}
+
+	@Test
+	public void resolvesInterfaceMethodOfAbstractClass() throws IOException {
+		CallGraph callGraph = getCallGraph(
+				"package p; interface I { void m(); }",
+				"package p; abstract class A implements I {}",
+				"package p; class D extends A { public void m() {} }",
+				"package p; class E { void call(A a) { a.m(); } }");
+
+		assertEquals(set("p/D.m()V"), getCallees(callGraph, "p/E", "call", "(Lp/A;)V"));
+		assertEquals(-1, callGraph.getMethodId(new MethodReference("java/lang/Object", "m", "()V")));
+	}
+
+	@Test
+	public void dispatchesVirtualCallsToSubclasses() throws IOException {
+		CallGraph callGraph = getCallGraph(
+				"package p; class Base { void v() {} }",
+				"package p; class Sub extends Base { void v() {} }",
+				"package p; class Other extends Base {}",
+				"package p; class Caller { String call(Base b) { b.v(); return b.toString(); } }");
+
+		assertEquals(set("p/Base.v()V", "p/Sub.v()V", "java/lang/Object.toString()Ljava/lang/String;"),
+				getCallees(callGraph, "p/Caller", "call", "(Lp/Base;)Ljava/lang/String;"));
+		int toString = callGraph.getMethodId(new MethodReference("java/lang/Object", "toString",
+				"()Ljava/lang/String;"));
+		assertFalse(callGraph.isDeclared(toString));
+		assertEquals(set("p/Caller.call(Lp/Base;)Ljava/lang/String;"), getCallers(callGraph, toString));
+	}
+
+	@Test
+	public void addsEdgesOfInvokedynamic() throws IOException {
+		CallGraph callGraph = getCallGraph(
+				"package p; class L { Runnable r() { return () -> target(); } static void target() {} }");
+
+		Set<String> callees = getCallees(callGraph, "p/L", "r", "()Ljava/lang/Runnable;");
+		assertTrue(callees.toString(), callees.contains("java/lang/invoke/LambdaMetafactory.metafactory("
+				+ "Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;"
+				+ "Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)"
+				+ "Ljava/lang/invoke/CallSite;"));
+
+		String lambda = null;
+		for (String callee : callees) {
+			if (callee.startsWith("p/L.lambda$")) {
+				lambda = callee;
+			}
+		}
+		assertNotNull(callees.toString(), lambda);
+		int target = callGraph.getMethodId(new MethodReference("p/L", "target", "()V"));
+		assertEquals(set(lambda), getCallers(callGraph, target));
+	}
+
+	private CallGraph getCallGraph(String... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("the tests must run on a JDK", compiler);
+
+		File sourceDirectory = folder.newFolder("src");
+		File classDirectory = folder.newFolder("classes");
+		List<File> sourceFiles = new ArrayList<>();
+		for (String source : sources) {
+			Matcher matcher = TYPE_NAME.matcher(source);
+			assertTrue(source, matcher.find());
+			File sourceFile = new File(sourceDirectory, matcher.group(1) + ".java");
+			Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+			sourceFiles.add(sourceFile);
+		}
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			boolean compiled = compiler.getTask(null, fileManager, null,
+					Arrays.asList("--release", "8", "-d", classDirectory.getPath()), null,
+					fileManager.getJavaFileObjectsFromFiles(sourceFiles)).call();
+			assertTrue("compilation failed", compiled);
+		}
+
+		try (ClassFileCollection classFiles = ClassFileCollection.getClassFileCollection(classDirectory)) {
+			return CallGraph.getCallGraph(classFiles);
+		}
+	}
+
+	private static Set<String> getCallees(CallGraph callGraph, String owner, String name, String descriptor) {
+		int method = callGraph.getMethodId(new MethodReference(owner, name, descriptor));
+		assertTrue(owner + "." + name + descriptor + " is not declared", method >= 0 && callGraph.isDeclared(method));
+		Set<String> callees = new TreeSet<>();
+		for (int i = 0; i < callGraph.getCalleeCount(method); i++) {
+			callees.add(describe(callGraph.getMethod(callGraph.getCallee(method, i))));
+		}
+		return callees;
+	}
+
+	private static Set<String> getCallers(CallGraph callGraph, int method) {
+		Set<String> callers = new TreeSet<>();
+		for (int i = 0; i < callGraph.getCallerCount(method); i++) {
+			callers.add(describe(callGraph.getMethod(callGraph.getCaller(method, i))));
+		}
+		return callers;
+	}
+
+	private static String describe(MethodReference method) {
+		return method.getOwner() + "." + method.getName() + method.getDescriptor();
+	}
+
+	private static Set<String> set(String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013, Werner Hahn
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ONANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.musikk.classreader.instructions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.musikk.classreader.ClassFile;
+import com.github.musikk.classreader.TestClasses;
+import com.github.musikk.classreader.attributes.AttributeType;
+import com.github.musikk.classreader.attributes.Code;
+import com.github.musikk.classreader.attributes.CodeAttribute;
+import com.github.musikk.classreader.methods.MethodInfo;
+
+/**
+ * Tests that {@link InstructionCursor} decodes the same instructions as
+ * {@link Instruction#getNextInstruction}.
+ *
+ * @author Werner Hahn
+ *
+ */
+public class InstructionCursorTest {
+
+	@Test
+	public void cursorEqualsDecodedInstructions() {
+		int instructionCount = 0;
+		for (byte[] bytes : TestClasses.getClassFiles()) {
+			ClassFile classFile = new ClassFile(ByteBuffer.wrap(bytes));
+			for (MethodInfo method : classFile.getMethods()) {
+				CodeAttribute codeAttribute = (CodeAttribute) method.getAttributes().getAttributeInfo(
+						classFile.getConstantPool(), AttributeType.CODE);
+				if (codeAttribute != null) {
+					instructionCount += assertCursorEqualsInstructions(codeAttribute.getCode());
+				}
+			}
+		}
+		assertTrue(instructionCount > 0);
+	}
+
+	private static int assertCursorEqualsInstructions(Code code) {
+		InstructionCursor cursor = code.getInstructionCursor();
+		for (Map.Entry<Integer, Instruction> entry : code.getInstructions().entrySet()) {
+			Instruction instruction = entry.getValue();
+			assertTrue(cursor.next());
+			assertEquals(entry.getKey().intValue(), cursor.offset());
+			assertEquals(instruction.getOpcode(), cursor.opcode());
+			assertEquals(instruction.getInstructionSize(), cursor.length());
+
+			Operand[] operands = instruction.getOperands();
+			assertEquals(instruction.toString(), operands.length, cursor.operandCount());
+			for (int i = 0; i < operands.length; i++) {
+				assertEquals(instruction.toString(), operands[i].getValue(), cursor.operand(i));
+			}
+		}
+		assertFalse(cursor.next());
+		return code.getInstructions().size();
+	}
+
+}